@@ -13,33 +13,135 @@
  */
 package de.trho.rcorefx.gui;
 
+import java.util.EnumMap;
+import java.util.Map;
 import de.trho.rcorefx.util.RCoreUtils;
+import javafx.application.Platform;
+import javafx.concurrent.Worker.State;
 import javafx.scene.Parent;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.scene.web.WebView;
+import netscape.javascript.JSObject;
 
+/**
+ * CodeMirror based code editor.<br>
+ * The editor page of each {@link Mode} is assembled once per JVM. It is loaded once per editor,
+ * afterwards the code is exchanged through the JavaScript bridge without reloading the page.<br>
+ * Code is transferred in segments of {@link #CHUNK_SIZE} characters, and only read back from the
+ * page if it has been edited since it was set or last read.
+ * 
+ * @author trh0 - TKoll
+ *
+ */
 public class RCoreCodeEditor extends Parent {
-  final WebView        webview = new WebView();
+  /**
+   * Number of characters transferred to or from the page per call.
+   */
+  public static final int                CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Page side of the chunked transfer and the change tracking.
+   */
+  private static final String            BRIDGE     =
+      "var rcore = { chunks: [], gen: 0, from: -1, to: -1 };"
+          + "rcore.append = function(s) { rcore.chunks.push(s); };"
+          + "rcore.commit = function() {"
+          + "  editor.setValue(rcore.chunks.join(\"\")); rcore.chunks = [];"
+          + "  editor.clearHistory(); rcore.markClean(); };"
+          + "rcore.markClean = function() {"
+          + "  rcore.gen = editor.changeGeneration(true); rcore.from = -1; rcore.to = -1; };"
+          + "rcore.dirty = function() { return !editor.isClean(rcore.gen); };"
+          + "rcore.length = function() { var l = editor.lastLine();"
+          + "  return editor.indexFromPos({ line: l, ch: editor.getLine(l).length }); };"
+          + "rcore.range = function(i, n) {"
+          + "  return editor.getRange(editor.posFromIndex(i), editor.posFromIndex(i + n)); };"
+          + "editor.on(\"changes\", function(cm, cs) {"
+          + "  for (var i = 0; i < cs.length; i++) { var c = cs[i];"
+          + "    var end = c.from.line + c.text.length - 1;"
+          + "    if (rcore.to >= c.to.line) { rcore.to += end - c.to.line; }"
+          + "    rcore.from = rcore.from < 0 ? c.from.line : Math.min(rcore.from, c.from.line);"
+          + "    rcore.to = Math.max(rcore.to, end); } });";
 
-  private String       editingCode;
+  private static final Map<Mode, String> Templates  = new EnumMap<>(Mode.class);
 
-  private final String editingTemplate;
-  private final VBox   box;
-  private Mode         mode;
+  final WebView                          webview   = new WebView();
 
-  private String applyEditingTemplate() {
-    return editingTemplate.replace("${code}", editingCode).replace("${mode}", mode.mode());
-  }
+  private String                         editingCode;
+
+  private final VBox                     box;
+  private Mode                           mode;
+  private boolean                        loaded    = false;
 
+  /**
+   * Replaces the editor's content. Before the page has finished loading the code is kept and
+   * pushed as soon as the editor exists.
+   * 
+   * @param newCode The code to show.
+   */
   public void setCode(String newCode) {
-    this.editingCode = newCode;
-    webview.getEngine().loadContent(applyEditingTemplate());
+    this.editingCode = newCode == null ? "" : newCode;
+    if (loaded) {
+      pushCode();
+    }
+  }
+
+  private JSObject bridge() {
+    return (JSObject) webview.getEngine().executeScript("rcore");
+  }
+
+  private void pushCode() {
+    final JSObject rcore = bridge();
+    final int length = editingCode.length();
+    for (int i = 0; i < length; i += CHUNK_SIZE) {
+      rcore.call("append", editingCode.substring(i, Math.min(length, i + CHUNK_SIZE)));
+    }
+    rcore.call("commit");
+  }
+
+  /**
+   * 
+   * @return Whether the code has been edited since it was set or last read by
+   *         {@link #getCodeAndSnapshot()}.
+   */
+  public boolean isDirty() {
+    return loaded && Boolean.TRUE.equals(bridge().call("dirty"));
   }
 
+  /**
+   * 
+   * @return The first and last line touched by edits since the code was set or last read, or null
+   *         if the code is unchanged.
+   */
+  public int[] getChangedLines() {
+    if (!isDirty()) {
+      return null;
+    }
+    final JSObject rcore = bridge();
+    final int from = ((Number) rcore.getMember("from")).intValue();
+    final int to = ((Number) rcore.getMember("to")).intValue();
+    return from < 0 ? null : new int[] {from, to};
+  }
+
+  /**
+   * Reads the code back from the page if it has been edited, otherwise returns the code as it was
+   * set.
+   * 
+   * @return The current code.
+   */
   public String getCodeAndSnapshot() {
-    this.editingCode = (String) webview.getEngine().executeScript("editor.getValue();");
+    if (!isDirty()) {
+      return editingCode;
+    }
+    final JSObject rcore = bridge();
+    final int length = ((Number) rcore.call("length")).intValue();
+    final StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i += CHUNK_SIZE) {
+      sb.append((String) rcore.call("range", i, CHUNK_SIZE));
+    }
+    rcore.call("markClean");
+    this.editingCode = sb.toString();
     return editingCode;
   }
 
@@ -87,10 +189,24 @@ public class RCoreCodeEditor extends Parent {
    */
   public RCoreCodeEditor(String editingCode, String title, Mode mode) {
     this.mode = (mode == null) ? Mode.XML : mode;
-    this.editingTemplate = getTemplate();
-    this.editingCode = (this.mode == Mode.XML) ? RCoreUtils.FormatXML(editingCode) : editingCode;
+    this.editingCode = editingCode == null ? "" : editingCode;
+    if (this.mode == Mode.XML) {
+      // show the code as it is until it has been formatted in the background
+      final String unformatted = this.editingCode;
+      RCoreUtils.FormatXMLAsync(unformatted).thenAccept(formatted -> Platform.runLater(() -> {
+        if (formatted != null && this.editingCode == unformatted && !isDirty()) {
+          setCode(formatted);
+        }
+      }));
+    }
     this.box = new VBox();
-    webview.getEngine().loadContent(applyEditingTemplate());
+    webview.getEngine().getLoadWorker().stateProperty().addListener((obs, o, n) -> {
+      if (n == State.SUCCEEDED) {
+        loaded = true;
+        pushCode();
+      }
+    });
+    webview.getEngine().loadContent(getTemplate(this.mode));
     box.setPrefWidth(VBox.USE_COMPUTED_SIZE);
     box.getChildren().add(webview);
     VBox.setVgrow(webview, Priority.ALWAYS);
@@ -99,27 +215,51 @@ public class RCoreCodeEditor extends Parent {
     this.getChildren().add(box);
   }
 
-  private String getTemplate() {
+  /**
+   * 
+   * @param mode The editor mode.
+   * @return The cached editor page of the mode, or the uncached CDN page if the bundled sources
+   *         could not be read.
+   */
+  private static String getTemplate(final Mode mode) {
+    synchronized (Templates) {
+      String template = Templates.get(mode);
+      if (template == null) {
+        template = buildTemplate(mode);
+        if (template == null) {
+          return fallbackTemplate().replace("${mode}", mode.mode());
+        }
+        template = template.replace("${mode}", mode.mode());
+        Templates.put(mode, template);
+      }
+      return template;
+    }
+  }
+
+  private static String buildTemplate(final Mode mode) {
     try {
       return "<!doctype html>" + "<html>" + "<head>" + "  <style>"
           + RCoreUtils.fromClasspath("codemirror/codemirror_min.css") + "</style>" + "  <script>"
           + RCoreUtils.fromClasspath("codemirror/codemirror_min.js") + "</script>" + "  <script>"
-          + RCoreUtils.fromClasspath(this.mode.source()) + "</script>" + "</head>" + "<body>"
-          + "<textarea id=\"code\" name=\"code\">\n" + "${code}" + "</textarea>" + "<script>"
+          + RCoreUtils.fromClasspath(mode.source()) + "</script>" + "</head>" + "<body>"
+          + "<textarea id=\"code\" name=\"code\"></textarea>" + "<script>"
           + "  var editor = CodeMirror.fromTextArea(document.getElementById(\"code\"), {"
           + "    lineNumbers: true," + "    matchBrackets: true," + "    mode: \"${mode}\""
-          + "  });" + "</script>" + "</body>" + "</html>";
+          + "  });" + BRIDGE + "</script>" + "</body>" + "</html>";
     } catch (Exception e) {
       e.printStackTrace();
-      return "<!doctype html>" + "<html>" + "<head>"
-          + "  <link rel=\"stylesheet\" href=\"http://codemirror.net/lib/codemirror.css\">"
-          + "  <script src=\"http://codemirror.net/lib/codemirror.js\"></script>"
-          + "  <script src=\"http://codemirror.net/mode/clike/clike.js\"></script>" + "</head>"
-          + "<body>" + "<form><textarea id=\"code\" name=\"code\">\n" + "${code}"
-          + "</textarea></form>" + "<script>"
-          + "  var editor = CodeMirror.fromTextArea(document.getElementById(\"code\"), {"
-          + "    lineNumbers: true," + "    matchBrackets: true," + "    mode: \"${mode}\""
-          + "  });" + "</script>" + "</body>" + "</html>";
+      return null;
     }
   }
+
+  private static String fallbackTemplate() {
+    return "<!doctype html>" + "<html>" + "<head>"
+        + "  <link rel=\"stylesheet\" href=\"http://codemirror.net/lib/codemirror.css\">"
+        + "  <script src=\"http://codemirror.net/lib/codemirror.js\"></script>"
+        + "  <script src=\"http://codemirror.net/mode/clike/clike.js\"></script>" + "</head>"
+        + "<body>" + "<form><textarea id=\"code\" name=\"code\"></textarea></form>" + "<script>"
+        + "  var editor = CodeMirror.fromTextArea(document.getElementById(\"code\"), {"
+        + "    lineNumbers: true," + "    matchBrackets: true," + "    mode: \"${mode}\""
+        + "  });" + BRIDGE + "</script>" + "</body>" + "</html>";
+  }
 }
@@ -16,13 +16,108 @@ package de.trho.rcorefx.gui;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.scene.Scene;
+import javafx.scene.control.Control;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextArea;
 
+/**
+ * Captures {@link System#out} and {@link System#err} into a bounded line ring buffer.<br>
+ * Writes may happen on any thread, the view is updated by a single drain on the FX application
+ * thread that applies all writes pending since the last drain at once. Once {@link #getMaxLines()}
+ * lines or {@link #getMaxChars()} characters are exceeded, the oldest lines are dropped.<br>
+ * In virtualized mode the lines are shown in a {@link ListView}, so rendering cost depends on the
+ * visible lines only.<br>
+ * Every line carries its sequence number and character offset, so lines can be looked up and
+ * selected without scanning the text. A filter is evaluated once over the retained lines when it is
+ * set and afterwards only for newly arriving lines.
+ */
 public class RCoreConsole {
 
+  /**
+   * A single captured line.
+   */
+  public static final class Line {
+    private final String  text;
+    private final boolean err;
+    private final long    seq;
+    private final long    offset;
+
+    Line(final String text, final boolean err, final long seq, final long offset) {
+      this.text = text;
+      this.err = err;
+      this.seq = seq;
+      this.offset = offset;
+    }
+
+    public String getText() {
+      return this.text;
+    }
+
+    /**
+     * 
+     * @return The number of lines captured before this one.
+     */
+    public long getSeq() {
+      return this.seq;
+    }
+
+    /**
+     * 
+     * @return <code>true</code> if the line was written to {@link System#err}.
+     */
+    public boolean isErr() {
+      return this.err;
+    }
+
+    @Override
+    public String toString() {
+      return this.text;
+    }
+  }
+
+  /**
+   * Streams a filter may be restricted to.
+   */
+  public enum Source {
+    ALL, OUT, ERR
+  }
+
+  /**
+   * Style class of cells showing {@link System#out} lines in virtualized mode.
+   */
+  public static final String   OUT_STYLE_CLASS   = "rcore-console-out";
+  /**
+   * Style class of cells showing {@link System#err} lines in virtualized mode, red in the console's
+   * own scene and in the bundled stylesheets.
+   */
+  public static final String   ERR_STYLE_CLASS   = "rcore-console-err";
+
+  /**
+   * Default number of lines kept by the console.
+   */
+  public static final int      DEFAULT_MAX_LINES = 10_000;
+  /**
+   * Default number of characters (including line breaks) kept by the console.
+   */
+  public static final int      DEFAULT_MAX_CHARS = 4 * 1024 * 1024;
+
   private final StringProperty property;
   private final PrintStream    err;
   private final PrintStream    out;
@@ -30,41 +125,100 @@ public class RCoreConsole {
   private final OutputStream   newOut;
   private final PrintStream    relinkOut;
   private final PrintStream    relinkErr;
-  private final StringBuilder  sbOut;
   private final Scene          scene;
   private final TextArea       console;
+  private final ListView<Line> list;
+  private final ObservableList<Line> items         = FXCollections.observableArrayList();
+  private final ObservableList<Line> filtered      = FXCollections.observableArrayList();
+  private Predicate<Line>            filter        = null;
+  private long                       filterSeq     = -1;
 
-  public RCoreConsole(boolean captureNow) {
-    this.console = new TextArea();
+  private final Object         lock              = new Object();
+  private final Line[]         lines;
+  private final List<Line>     pendingLines      = new ArrayList<>();
+  private final int            maxChars;
+  private final StringBuilder  open              = new StringBuilder();
+  private final StringBuilder  pending           = new StringBuilder();
+  private int                  head              = 0;
+  private int                  count             = 0;
+  private long                 chars             = 0;
+  private boolean              openErr           = false;
+  private long                 evicted           = 0;
+  private long                 displayed         = 0;
+  private int                  evictedLines      = 0;
+  private int                  listed            = 0;
+  private long                 committed         = 0;
+  private long                 committedChars    = 0;
+  private boolean              pendingOverflow   = false;
+  private volatile boolean     collect           = false;
+  private boolean              listHasOpen       = false;
+  private boolean              drainScheduled    = false;
+  private volatile boolean     bound             = false;
+
+  /**
+   * 
+   * @param captureNow Whether to start capturing immediately.
+   * @param virtualized Whether to show the output in a virtualized {@link ListView} instead of a
+   *        {@link TextArea}.
+   * @param maxLines Maximum number of lines to keep.
+   * @param maxChars Maximum number of characters to keep, line breaks included. A single line
+   *        exceeding this limit is wrapped.
+   */
+  public RCoreConsole(boolean captureNow, boolean virtualized, int maxLines, int maxChars) {
+    if (maxLines < 1 || maxChars < 1) {
+      throw new IllegalArgumentException("maxLines=" + maxLines + ", maxChars=" + maxChars);
+    }
+    this.lines = new Line[maxLines];
+    this.maxChars = maxChars;
+    this.console = virtualized ? null : new TextArea();
+    this.list = virtualized ? new ListView<>() : null;
     this.property = new SimpleStringProperty();
     this.out = System.out;
     this.err = System.err;
-    this.newErr = newErr();
-    this.newOut = newOut();
+    this.newErr = new Capture(err, true);
+    this.newOut = new Capture(out, false);
     this.relinkOut = new PrintStream(newOut, true);
     this.relinkErr = new PrintStream(newErr, true);
-    this.sbErr = new StringBuilder();
-    this.sbOut = new StringBuilder();
-    this.scene = new Scene(console);
-    console.setPrefWidth(800);
-    console.setPrefHeight(400);
-    console.setEditable(false);
-    console.textProperty().bind(property);
-    console.textProperty().addListener((obs, ov, nv) -> {
-      console.setScrollTop(Double.MAX_VALUE);
-    });
+    if (virtualized) {
+      list.setItems(items);
+      list.setCellFactory(param -> new LineCell());
+      this.scene = new Scene(list);
+      // stylesheets added to the scene later override the default colours
+      this.scene.getStylesheets()
+          .add(RCoreConsole.class.getResource("/css/RCoreConsole.css").toExternalForm());
+    } else {
+      console.setEditable(false);
+      this.scene = new Scene(console);
+    }
+    getView().setPrefWidth(800);
+    getView().setPrefHeight(400);
     if (captureNow)
       this.startCapture();
   }
 
+  public RCoreConsole(boolean captureNow, int maxLines, int maxChars) {
+    this(captureNow, false, maxLines, maxChars);
+  }
+
+  public RCoreConsole(boolean captureNow) {
+    this(captureNow, DEFAULT_MAX_LINES, DEFAULT_MAX_CHARS);
+  }
+
   public RCoreConsole() {
     this(false);
   }
 
-  private final StringBuilder sbErr;
-  char                        c = ',';
-
+  /**
+   * The property holds the retained console text. It is only updated once it has been requested,
+   * since building the text copies the whole buffer on every drain.
+   * 
+   * @return The console's content.
+   */
   public StringProperty binding() {
+    if (!this.bound) {
+      this.bound = true;
+      scheduleDrain();
+    }
     return this.property;
   }
 
@@ -72,55 +226,438 @@ public class RCoreConsole {
     return this.scene;
   }
 
+  /**
+   * 
+   * @return The {@link TextArea} or, in virtualized mode, the {@link ListView} showing the output.
+   */
+  public Control getView() {
+    return this.console != null ? this.console : this.list;
+  }
+
+  public boolean isVirtualized() {
+    return this.list != null;
+  }
+
+  public int getMaxLines() {
+    return this.lines.length;
+  }
+
+  public int getMaxChars() {
+    return this.maxChars;
+  }
+
   public void startCapture() {
     System.setOut(relinkOut);
     System.setErr(relinkErr);
   }
 
-  private OutputStream newOut() {
-    return new OutputStream() {
-
-      @Override
-      public void write(int b) throws IOException {
-        if (b != -1) {
-          c = (char) b;
-          sbOut.append(c);
+  /**
+   * Appends text to the ring buffer. Output of the other stream terminates the current line.
+   */
+  private void append(final CharSequence s, final boolean isErr) {
+    final int len = s.length();
+    if (len == 0) {
+      return;
+    }
+    synchronized (lock) {
+      if (open.length() > 0 && openErr != isErr) {
+        commitLine();
+        pending.append('\n');
+      }
+      openErr = isErr;
+      int start = 0;
+      for (int i = 0; i < len; i++) {
+        if (s.charAt(i) == '\n') {
+          open.append(s, start, i);
+          commitLine();
+          start = i + 1;
         }
       }
+      open.append(s, start, len);
+      if (console == null) {
+        // the list view is fed with complete lines only
+      } else if (pending.length() + len > maxChars) {
+        // everything displayed so far is gone, the next drain replaces the text
+        pending.setLength(0);
+        evicted = Math.max(evicted, displayed);
+      } else {
+        pending.append(s);
+      }
+      if (open.length() > maxChars) {
+        commitLine();
+        pending.append('\n');
+      }
+      scheduleDrain();
+    }
+  }
 
-      @Override
-      public void flush() throws IOException {
-        String s = property.getValue();
-        s = (s == null || s.isEmpty()) ? "" : s;
-        property.setValue(s + sbOut.toString());
-        out.print(sbOut.toString());
-        out.flush();
-        sbOut.delete(0, sbOut.length());
-      };
-    };
+  private void commitLine() {
+    final Line line = new Line(open.toString(), openErr, committed++, committedChars);
+    open.setLength(0);
+    committedChars += line.text.length() + 1;
+    if (count == lines.length) {
+      evictLine();
+    }
+    lines[(head + count) % lines.length] = line;
+    count++;
+    chars += line.text.length() + 1;
+    if (list != null || collect) {
+      if (pendingLines.size() == lines.length) {
+        // everything listed so far is gone, the next drain replaces the items
+        pendingLines.clear();
+        pendingOverflow = true;
+      }
+      pendingLines.add(line);
+    }
+    while (chars > maxChars && count > 0) {
+      evictLine();
+    }
   }
 
-  private OutputStream newErr() {
-    return new OutputStream() {
+  private void evictLine() {
+    final int len = lines[head].text.length() + 1;
+    lines[head] = null;
+    head = (head + 1) % lines.length;
+    count--;
+    chars -= len;
+    evicted += len;
+    evictedLines++;
+  }
 
-      @Override
-      public void write(int b) throws IOException {
-        if (b != -1) {
-          c = (char) b;
-          sbErr.append(c);
+  private String content() {
+    final StringBuilder sb = new StringBuilder((int) (chars + open.length()));
+    for (int i = 0; i < count; i++) {
+      sb.append(lines[(head + i) % lines.length].text).append('\n');
+    }
+    return sb.append(open).toString();
+  }
+
+  private void scheduleDrain() {
+    synchronized (lock) {
+      if (drainScheduled) {
+        return;
+      }
+      drainScheduled = true;
+    }
+    Platform.runLater(this::drain);
+  }
+
+  private List<Line> snapshot() {
+    final List<Line> snapshot = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      snapshot.add(lines[(head + i) % lines.length]);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Applies everything written since the last drain to the view. Runs on the FX application thread.
+   */
+  private void drain() {
+    if (list != null) {
+      drainList();
+      return;
+    }
+    final String text;
+    final String full;
+    final long evict;
+    final String bind;
+    final List<Line> added;
+    final long first;
+    synchronized (lock) {
+      drainScheduled = false;
+      added = takePendingLines();
+      first = committed - count;
+      evict = evicted;
+      if (evict >= displayed) {
+        text = null;
+        full = content();
+      } else {
+        text = pending.toString();
+        full = null;
+      }
+      displayed = chars + open.length();
+      pending.setLength(0);
+      evicted = 0;
+      bind = bound ? (full != null ? full : content()) : null;
+    }
+    if (full != null) {
+      console.setText(full);
+    } else {
+      console.appendText(text);
+      if (evict > 0) {
+        console.deleteText(0, (int) evict);
+      }
+    }
+    console.setScrollTop(Double.MAX_VALUE);
+    if (bind != null) {
+      property.setValue(bind);
+    }
+    updateFilter(added, first);
+  }
+
+  /**
+   * The list holds all retained lines followed by the open line, if any.
+   */
+  private void drainList() {
+    final boolean overflow;
+    final List<Line> added;
+    final List<Line> all;
+    final int evict;
+    final Line openLine;
+    final String bind;
+    final long first;
+    synchronized (lock) {
+      drainScheduled = false;
+      overflow = pendingOverflow;
+      added = takePendingLines();
+      first = committed - count;
+      evict = evictedLines;
+      all = overflow ? new ArrayList<>(added) : evict >= listed ? snapshot() : null;
+      listed = count;
+      evictedLines = 0;
+      evicted = 0;
+      pending.setLength(0);
+      openLine = open.length() > 0 ? new Line(open.toString(), openErr, committed, committedChars)
+          : null;
+      bind = bound ? content() : null;
+    }
+    if (listHasOpen) {
+      items.remove(items.size() - 1);
+    }
+    if (all != null) {
+      if (openLine != null) {
+        all.add(openLine);
+      }
+      items.setAll(all);
+    } else {
+      final List<Line> toAdd = new ArrayList<>(added);
+      if (openLine != null) {
+        toAdd.add(openLine);
+      }
+      items.addAll(toAdd);
+      if (evict > 0) {
+        items.remove(0, evict);
+      }
+    }
+    listHasOpen = openLine != null;
+    list.scrollTo(list.getItems().size() - 1);
+    if (bind != null) {
+      property.setValue(bind);
+    }
+    updateFilter(added, first);
+  }
+
+  /**
+   * Returns the lines committed since the last drain, or all retained lines if some of them have
+   * already been dropped from the pending list.
+   */
+  private List<Line> takePendingLines() {
+    final List<Line> taken = pendingOverflow ? snapshot() : new ArrayList<>(pendingLines);
+    pendingLines.clear();
+    pendingOverflow = false;
+    return taken;
+  }
+
+  /**
+   * Drops evicted lines from the head of the filtered lines and tests the new lines only.
+   * 
+   * @param added Lines committed since the last drain. Lines that have been tested already are
+   *        skipped.
+   * @param first Sequence number of the oldest retained line.
+   */
+  private void updateFilter(final List<Line> added, final long first) {
+    if (filter == null) {
+      return;
+    }
+    int k = 0;
+    while (k < filtered.size() && filtered.get(k).seq < first) {
+      k++;
+    }
+    if (k > 0) {
+      filtered.remove(0, k);
+    }
+    final List<Line> matches = new ArrayList<>();
+    for (Line l : added) {
+      if (l.seq > filterSeq) {
+        filterSeq = l.seq;
+        if (filter.test(l)) {
+          matches.add(l);
         }
       }
+    }
+    if (!matches.isEmpty()) {
+      filtered.addAll(matches);
+    }
+  }
+
+  /**
+   * Filters the retained lines. In virtualized mode the view shows the matching lines only. Must be
+   * called on the FX application thread.
+   * 
+   * @param pattern A pattern that has to be found in a line, may be null.
+   * @param source The stream lines have to be written to.
+   */
+  public void setFilter(final Pattern pattern, final Source source) {
+    final Source src = source == null ? Source.ALL : source;
+    final Predicate<Line> p = l -> (src == Source.ALL || (src == Source.ERR) == l.err)
+        && (pattern == null || pattern.matcher(l.text).find());
+    final List<Line> retained;
+    synchronized (lock) {
+      retained = snapshot();
+      collect = true;
+      filterSeq = committed - 1;
+    }
+    final List<Line> matches = new ArrayList<>();
+    for (Line l : retained) {
+      if (p.test(l)) {
+        matches.add(l);
+      }
+    }
+    this.filter = p;
+    filtered.setAll(matches);
+    if (list != null) {
+      list.setItems(filtered);
+    }
+  }
+
+  /**
+   * Removes the filter, the view shows all lines again.
+   */
+  public void clearFilter() {
+    this.filter = null;
+    this.collect = false;
+    filtered.clear();
+    if (list != null) {
+      list.setItems(items);
+      list.scrollTo(items.size() - 1);
+    }
+  }
+
+  /**
+   * 
+   * @return The lines matching the current filter, updated as new lines arrive.
+   */
+  public ObservableList<Line> getFilteredLines() {
+    return FXCollections.unmodifiableObservableList(filtered);
+  }
+
+  /**
+   * Searches the retained lines.
+   * 
+   * @param pattern The pattern to find.
+   * @param fromSeq Sequence number of the line to start searching at.
+   * @return The first matching line at or after <code>fromSeq</code> or null.
+   */
+  public Line find(final Pattern pattern, final long fromSeq) {
+    final List<Line> candidates;
+    synchronized (lock) {
+      final long first = committed - count;
+      final int from = (int) Math.max(0, fromSeq - first);
+      candidates = new ArrayList<>(Math.max(0, count - from));
+      for (int i = from; i < count; i++) {
+        candidates.add(lines[(head + i) % lines.length]);
+      }
+    }
+    for (Line l : candidates) {
+      if (pattern.matcher(l.text).find()) {
+        return l;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Scrolls to and selects a line if it is still retained. Must be called on the FX application
+   * thread.
+   * 
+   * @param line A line returned by {@link #find(Pattern, long)} or {@link #getFilteredLines()}.
+   */
+  public void select(final Line line) {
+    if (list != null) {
+      list.getSelectionModel().select(line);
+      list.scrollTo(line);
+      return;
+    }
+    final int start;
+    synchronized (lock) {
+      start = (int) (line.offset - (count > 0 ? lines[head].offset : committedChars));
+    }
+    if (start >= 0 && start + line.text.length() <= console.getLength()) {
+      console.selectRange(start, start + line.text.length());
+    }
+  }
+
+  private static final class LineCell extends ListCell<Line> {
+    @Override
+    protected void updateItem(final Line item, final boolean empty) {
+      super.updateItem(item, empty);
+      getStyleClass().removeAll(OUT_STYLE_CLASS, ERR_STYLE_CLASS);
+      if (empty || item == null) {
+        setText(null);
+      } else {
+        setText(item.text);
+        getStyleClass().add(item.err ? ERR_STYLE_CLASS : OUT_STYLE_CLASS);
+      }
+    }
+  }
+
+  /**
+   * Passes the written bytes through to the original stream and decodes them into the ring buffer
+   * using the platform charset, which is the one used by the relinked {@link PrintStream}s.
+   * Multi-byte sequences split across writes are kept until they are complete.
+   */
+  private final class Capture extends OutputStream {
+    private static final int     BUFFER_SIZE = 8192;
+
+    private final PrintStream    target;
+    private final boolean        isErr;
+    private final CharsetDecoder decoder     = Charset.defaultCharset().newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer     bytes       = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer     chars       = CharBuffer.allocate(BUFFER_SIZE);
+
+    Capture(final PrintStream target, final boolean isErr) {
+      this.target = target;
+      this.isErr = isErr;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+      target.write(b);
+      bytes.put((byte) b);
+      decode();
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+      target.write(b, off, len);
+      while (len > 0) {
+        final int n = Math.min(len, bytes.remaining());
+        bytes.put(b, off, n);
+        off += n;
+        len -= n;
+        decode();
+      }
+    }
+
+    private void decode() {
+      bytes.flip();
+      CoderResult result;
+      do {
+        result = decoder.decode(bytes, chars, false);
+        chars.flip();
+        append(chars, isErr);
+        chars.clear();
+      } while (result.isOverflow());
+      bytes.compact();
+    }
 
-      @Override
-      public void flush() throws IOException {
-        String s = property.getValue();
-        s = (s == null || s.isEmpty()) ? "" : s;
-        property.setValue(s + sbErr.toString());
-        err.print(sbErr.toString());
-        err.flush();
-        sbErr.delete(0, sbErr.length());
-      };
-    };
+    @Override
+    public void flush() throws IOException {
+      target.flush();
+    }
   }
 
   public void reset() throws IOException {
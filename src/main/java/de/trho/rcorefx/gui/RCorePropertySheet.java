@@ -14,20 +14,31 @@
 package de.trho.rcorefx.gui;
 
 import de.trho.rcorefx.util.RCoreUtils;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
+import javafx.scene.control.TitledPane;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import org.controlsfx.control.PropertySheet;
 import org.controlsfx.property.editor.Editors;
@@ -40,6 +51,9 @@ import org.controlsfx.property.editor.PropertyEditor;
  *      <a href=
  *      "https://stackoverflow.com/questions/24238858/property-sheet-example-with-use-of-a-propertyeditor-controlsfx"/>
  *      StackOverflow-post that helped alot.
+ *      <p>
+ *      Editors are created once per item and reused whenever the sheet rebuilds. An editor is
+ *      only created when its category is expanded for the first time.
  */
 
 public class RCorePropertySheet extends ScrollPane {
@@ -142,6 +156,90 @@ public class RCorePropertySheet extends ScrollPane {
   private PropertySheet                               c_props;
 
   private volatile ObservableList<PropertySheet.Item> items;
+  /**
+   * Items by name, kept in sync with {@link #items}.
+   */
+  private final Map<String, MultiFormItem>            index   = new HashMap<>();
+  /**
+   * Editors by item, dropped once the item is removed from the sheet.
+   */
+  private final Map<MultiFormItem, LazyEditor>        editors = new HashMap<>();
+
+  /**
+   * Shows a placeholder until the category of the item is expanded, then creates the actual
+   * editor.
+   */
+  private final class LazyEditor implements PropertyEditor<Object> {
+    private final MultiFormItem     item;
+    private final Class<?>          type;
+    private final StackPane         pane = new StackPane();
+    private PropertyEditor<Object>  editor;
+    private TitledPane              category;
+    private ChangeListener<Boolean> expanded;
+
+    LazyEditor(final MultiFormItem item) {
+      this.item = item;
+      this.type = item.getType();
+      this.pane.sceneProperty().addListener((obs, o, n) -> {
+        unwatch();
+        if (n != null && editor == null) {
+          watch();
+        }
+      });
+    }
+
+    private void watch() {
+      Parent p = pane.getParent();
+      while (p != null && !(p instanceof TitledPane)) {
+        p = p.getParent();
+      }
+      if (p == null || ((TitledPane) p).isExpanded()) {
+        create();
+        return;
+      }
+      this.category = (TitledPane) p;
+      this.expanded = (obs, o, n) -> {
+        if (n) {
+          unwatch();
+          create();
+        }
+      };
+      this.category.expandedProperty().addListener(expanded);
+    }
+
+    private void unwatch() {
+      if (category != null) {
+        category.expandedProperty().removeListener(expanded);
+        category = null;
+        expanded = null;
+      }
+    }
+
+    private void create() {
+      if (editor == null) {
+        editor = createEditor(item);
+        editor.setValue(item.getValue());
+        pane.getChildren().setAll(editor.getEditor());
+      }
+    }
+
+    @Override
+    public Node getEditor() {
+      return pane;
+    }
+
+    @Override
+    public Object getValue() {
+      return editor == null ? item.getValue() : editor.getValue();
+    }
+
+    @Override
+    public void setValue(final Object value) {
+      if (editor != null) {
+        editor.setValue(value);
+      }
+    }
+  }
 
   public <T> void addItem(final String key, final String group, final String descr,
       final String regex, final T value) {
@@ -149,12 +247,13 @@ public class RCorePropertySheet extends ScrollPane {
     final MultiFormItem it;
     if (item.isPresent()) {
       it = item.get();
-      final int idx = this.items.indexOf(it);
       it.setValue(value);
       it.descr.set(descr);
-      it.group.set(group);
-      it.name.set(key);
-      this.items.set(idx, it);
+      if (!Objects.equals(it.group.get(), group)) {
+        it.group.set(group);
+        // the sheet reads the categories only when its items change
+        this.items.set(this.items.indexOf(it), it);
+      }
     } else {
       it = new MultiFormItem(key, group, regex, value);
       it.descr.set(descr);
@@ -162,13 +261,58 @@ public class RCorePropertySheet extends ScrollPane {
     }
   }
 
+  /**
+   * Adds or updates several items of a group with a single change of the sheet's items.
+   * 
+   * @param group The group of the items.
+   * @param values The values of the items by name.
+   */
+  public void addItems(final String group, final Map<String, ?> values) {
+    final List<PropertySheet.Item> added = new ArrayList<>();
+    boolean updated = false;
+    for (Map.Entry<String, ?> e : values.entrySet()) {
+      final MultiFormItem it = this.index.get(e.getKey());
+      if (it != null) {
+        it.setValue(e.getValue());
+        it.group.set(group);
+        updated = true;
+      } else {
+        added.add(new MultiFormItem(e.getKey(), group, null, e.getValue()));
+      }
+    }
+    if (updated) {
+      final List<PropertySheet.Item> all = new ArrayList<>(this.items.size() + added.size());
+      all.addAll(this.items);
+      all.addAll(added);
+      this.items.setAll(all);
+    } else if (!added.isEmpty()) {
+      this.items.addAll(added);
+    }
+  }
+
+  /**
+   * Sets the values of existing items. Unknown names are ignored.
+   * 
+   * @param values The values of the items by name.
+   */
+  public void setItems(final Map<String, ?> values) {
+    for (Map.Entry<String, ?> e : values.entrySet()) {
+      final MultiFormItem it = this.index.get(e.getKey());
+      if (it != null) {
+        it.setValue(e.getValue());
+      }
+    }
+  }
+
   public void removeItem(final String name) {
-    this.items.removeIf(it -> name.equals(it.getName()));
+    final MultiFormItem it = this.index.get(name);
+    if (it != null) {
+      this.items.remove(it);
+    }
   }
 
   public Optional<MultiFormItem> getItem(final String name) {
-    return this.items.stream().filter(it -> name.equals(it.getName())).map(el -> (MultiFormItem) el)
-        .findFirst();
+    return Optional.ofNullable(this.index.get(name));
   }
 
   public <T> void setItem(final String key, final T value) {
@@ -188,27 +332,59 @@ public class RCorePropertySheet extends ScrollPane {
   @FXML
   void initialize() {
     this.items = this.c_props.getItems();
-    this.c_props.setPropertyEditorFactory(param -> {
-      final Object value = param.getValue();
-      final String rgx = ((MultiFormItem) param).getValidationRegex();
-      if (value != null) {
-        final Class<? extends Object> type = value.getClass();
-        if (RCoreUtils.isNumber(type)) {
-          return Editors.createNumericEditor(param);
-        } else if (value instanceof Boolean || type == boolean.class) {
-          return Editors.createCheckEditor(param);
-        } else if (type.isAssignableFrom(Color.class)) {
-          return Editors.createColorEditor(param);
-        } else if (type.isEnum()) {
-          return Editors.createChoiceEditor(param, Arrays.asList(type.getEnumConstants()));
+    this.items.addListener((ListChangeListener<PropertySheet.Item>) c -> {
+      final List<PropertySheet.Item> removed = new ArrayList<>();
+      while (c.next()) {
+        for (PropertySheet.Item it : c.getRemoved()) {
+          this.index.remove(it.getName(), it);
+          removed.add(it);
+        }
+        for (PropertySheet.Item it : c.getAddedSubList()) {
+          if (it instanceof MultiFormItem) {
+            this.index.put(it.getName(), (MultiFormItem) it);
+          }
         }
       }
-      PropertyEditor<?> editor = Editors.createTextEditor(param);
-      if (rgx != null) {
-        RCoreUtils.addValidator(rgx, (TextField) editor.getEditor());
+      // regrouping removes and adds the same items, keep their editors
+      for (PropertySheet.Item it : removed) {
+        if (this.index.get(it.getName()) != it) {
+          this.editors.remove(it);
+        }
+      }
+    });
+    this.c_props.setPropertyEditorFactory(param -> {
+      final MultiFormItem item = (MultiFormItem) param;
+      LazyEditor editor = this.editors.get(item);
+      if (editor == null || editor.type != item.getType()) {
+        editor = new LazyEditor(item);
+        this.editors.put(item, editor);
       }
       return editor;
     });
   }
 
+  @SuppressWarnings("unchecked")
+  private PropertyEditor<Object> createEditor(final MultiFormItem param) {
+    final Object value = param.getValue();
+    final String rgx = param.getValidationRegex();
+    if (value != null) {
+      final Class<? extends Object> type = value.getClass();
+      if (RCoreUtils.isNumber(type)) {
+        return (PropertyEditor<Object>) Editors.createNumericEditor(param);
+      } else if (value instanceof Boolean || type == boolean.class) {
+        return (PropertyEditor<Object>) Editors.createCheckEditor(param);
+      } else if (type.isAssignableFrom(Color.class)) {
+        return (PropertyEditor<Object>) Editors.createColorEditor(param);
+      } else if (type.isEnum()) {
+        return (PropertyEditor<Object>) Editors.createChoiceEditor(param,
+            Arrays.asList(type.getEnumConstants()));
+      }
+    }
+    PropertyEditor<?> editor = Editors.createTextEditor(param);
+    if (rgx != null) {
+      RCoreUtils.addValidator(rgx, (TextField) editor.getEditor());
+    }
+    return (PropertyEditor<Object>) editor;
+  }
+
 }
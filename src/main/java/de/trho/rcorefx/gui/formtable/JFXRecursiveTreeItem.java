@@ -15,15 +15,26 @@
 
 package de.trho.rcorefx.gui.formtable;
 
+import de.trho.rcorefx.util.RCoreController;
 import de.trho.rcorefx.util.RCoreUtils;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
-import javafx.beans.binding.Bindings;
+import java.util.stream.IntStream;
+import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
+import javafx.event.Event;
 import javafx.scene.Node;
 import javafx.scene.control.TreeItem;
 import javafx.util.Callback;
@@ -31,6 +42,16 @@ import javafx.util.Callback;
 /**
  * RecursiveTreeItem is used along with RecursiveTreeObject to build the data model for the
  * TreeTableView.
+ * <p>
+ * In incremental filter mode a predicate change only adds and removes the children whose visibility
+ * changed, as ranged changes. A predicate passed to {@link #refinePredicate(Predicate)} is expected
+ * to be narrower than the current one, so only the visible children are tested again.
+ * <p>
+ * {@link #setPredicateAsync(Predicate)} evaluates an expensive predicate for all descendants in
+ * parallel on a background thread and applies the resulting visibility bitmap on the FX thread.
+ * <p>
+ * Lazy items create the tree items of their children when they are expanded for the first time or
+ * when a filter needs to look at them. Changes of the children lists are tracked either way.
  *
  * @author Shadi Shaheen
  * @version 1.0
@@ -38,13 +59,29 @@ import javafx.util.Callback;
  */
 public class JFXRecursiveTreeItem<T extends JFXRecursiveTreeObject<T>> extends TreeItem<T> {
 
+  /**
+   * More ranges than this are applied as one replacement of all visible children.
+   */
+  private static final int                                    MAX_RUNS      = 64;
+
+  /**
+   * Initial predicate of all items. Shared, so pushing it to a child is no predicate change, an
+   * initializer lambda would be a distinct instance per constructor.
+   */
+  private static final Predicate<Object>                      ACCEPT_ALL    = t -> true;
+
+  /**
+   * Distance between the {@link #order} of consecutive children when they are numbered.
+   */
+  private static final long                                   ORDER_STEP    = 1L << 20;
+
   private Callback<JFXRecursiveTreeObject<T>, ObservableList<T>> childrenFactory;
 
   /**
    * predicate used to filter nodes
    */
   private ObjectProperty<Predicate<TreeItem<T>>>              predicate     =
-      new SimpleObjectProperty<>((TreeItem<T> t) -> true);
+      new SimpleObjectProperty<>(acceptAll());
 
   /**
    * list of original items
@@ -57,6 +94,60 @@ public class JFXRecursiveTreeItem<T extends JFXRecursiveTreeObject<T>> extends T
    */
   FilteredList<TreeItem<T>>                                   filteredItems;
 
+  /**
+   * whether predicate changes are applied as a diff of the visible children
+   */
+  private boolean                                             incremental   = false;
+
+  /**
+   * set while the predicate is pushed down by the parent, which filters this item itself
+   */
+  private boolean                                             pushing       = false;
+
+  /**
+   * whether the next predicate change narrows the current predicate
+   */
+  private boolean                                             refining      = false;
+
+  /**
+   * incremented by every predicate change, outdates running asynchronous evaluations
+   */
+  private volatile long                                       generation    = 0;
+  private Future<?>                                           evaluation;
+  private CompletableFuture<Boolean>                          evaluated;
+
+  /**
+   * position of this item in the flattened tree of an asynchronous evaluation
+   */
+  private Object                                              flatToken;
+  private int                                                 flatIndex;
+
+  /**
+   * whether child items are created on first expansion only
+   */
+  private final boolean                                       lazy;
+
+  /**
+   * whether the child items have been created
+   */
+  private boolean                                             materialized  = false;
+
+  /**
+   * the values of the children
+   */
+  private ObservableList<T>                                   source;
+
+  /**
+   * applies changes of {@link #source} to the child items
+   */
+  private ListChangeListener<T>                               sourceListener;
+
+  /**
+   * key of this item among the original items of its parent, increasing with the position. Gaps
+   * leave room for inserted siblings, so visible children can be located by binary search.
+   */
+  private long                                                order;
+
   /***************************************************************************
    * * Constructors * *
    **************************************************************************/
@@ -90,8 +181,23 @@ public class JFXRecursiveTreeItem<T extends JFXRecursiveTreeObject<T>> extends T
    */
   public JFXRecursiveTreeItem(final T value, Node graphic,
       Callback<JFXRecursiveTreeObject<T>, ObservableList<T>> func) {
+    this(value, graphic, func, false);
+  }
+
+  /**
+   * creates recursive tree item for a specified value and a graphic node
+   *
+   * @param value of the tree item
+   * @param graphic node
+   * @param func is the callback used to retrieve the children of the current tree item
+   * @param lazy whether the items of the children and further descendants are created on first
+   *        expansion only
+   */
+  public JFXRecursiveTreeItem(final T value, Node graphic,
+      Callback<JFXRecursiveTreeObject<T>, ObservableList<T>> func, final boolean lazy) {
     super(value, graphic);
     this.childrenFactory = func;
+    this.lazy = lazy;
     init(value);
   }
 
@@ -103,16 +209,40 @@ public class JFXRecursiveTreeItem<T extends JFXRecursiveTreeObject<T>> extends T
    */
   public JFXRecursiveTreeItem(ObservableList<T> dataList,
       Callback<JFXRecursiveTreeObject<T>, ObservableList<T>> func) {
+    this(dataList, func, false);
+  }
+
+  /**
+   * creates recursive tree item from a data list
+   *
+   * @param dataList of values
+   * @param func is the callback used to retrieve the children of the current tree item
+   * @param lazy whether the items of further descendants are created on first expansion only, the
+   *        items of the data list are created right away
+   */
+  public JFXRecursiveTreeItem(ObservableList<T> dataList,
+      Callback<JFXRecursiveTreeObject<T>, ObservableList<T>> func, final boolean lazy) {
     JFXRecursiveTreeObject<T> root = new JFXRecursiveTreeObject<>();
     root.setChildren(dataList);
     this.childrenFactory = func;
+    this.lazy = lazy;
     init(root);
+    materialize();
   }
 
   private void init(JFXRecursiveTreeObject<T> value) {
 
     if (value != null) {
       addChildrenListener(value);
+    } else {
+      filteredItems = new FilteredList<>(originalItems, (TreeItem<T> t) -> true);
+    }
+    if (lazy) {
+      expandedProperty().addListener((o, oldVal, newVal) -> {
+        if (newVal) {
+          materialize();
+        }
+      });
     }
     valueProperty().addListener((o, oldValue, newValue) -> {
       if (newValue != null) {
@@ -120,37 +250,30 @@ public class JFXRecursiveTreeItem<T extends JFXRecursiveTreeObject<T>> extends T
       }
     });
 
-    this.filteredItems.predicateProperty().bind(Bindings.createObjectBinding(() -> {
-      return new Predicate<TreeItem<T>>() {
-        @Override
-        public boolean test(TreeItem<T> child) {
-          // Set the predicate of child items to force filtering
-          if (child instanceof JFXRecursiveTreeItem) {
-            if (!((JFXRecursiveTreeItem<?>) child).originalItems.isEmpty()) {
-              JFXRecursiveTreeItem<T> filterableChild = (JFXRecursiveTreeItem<T>) child;
-              filterableChild.setPredicate(JFXRecursiveTreeItem.this.predicate.get());
-            }
-          }
-          // If there is no predicate, keep this tree item
-          if (JFXRecursiveTreeItem.this.predicate.get() == null) {
-            return true;
-          }
-          // If there are children, keep this tree item
-          if (child.getChildren().size() > 0) {
-            return true;
-          }
-          // If its a group node keep this item if it has children
-          if (child.getValue() instanceof JFXRecursiveTreeObject
-              && child.getValue().getClass() == JFXRecursiveTreeObject.class) {
-            return child.getChildren().size() != 0;
-          }
-          // Otherwise ask the TreeItemPredicate
-          return JFXRecursiveTreeItem.this.predicate.get().test(child);
+    this.filteredItems.setPredicate(createFilter());
+    this.predicate.addListener((o, oldVal, newVal) -> {
+      final boolean refine = this.refining;
+      this.refining = false;
+      if (this.pushing) {
+        return;
+      }
+      supersede();
+      if (this.incremental) {
+        RCoreUtils.onFxThread(() -> filter(newVal, newVal, refine));
+      } else if (!this.materialized) {
+        // the filtered list evaluates the current predicate for the created items
+        if (filters(newVal)) {
+          materialize();
         }
-      };
-    }, this.predicate));
+      } else {
+        this.filteredItems.setPredicate(createFilter());
+      }
+    });
 
     this.filteredItems.predicateProperty().addListener((o, oldVal, newVal) -> {
+      if (this.incremental) {
+        return;
+      }
       RCoreUtils.onFxThread(() -> {
         getChildren().clear();
         getChildren().addAll(filteredItems);
@@ -158,44 +281,532 @@ public class JFXRecursiveTreeItem<T extends JFXRecursiveTreeObject<T>> extends T
     });
   }
 
-  private void addChildrenListener(JFXRecursiveTreeObject<T> value) {
-    final ObservableList<T> children = childrenFactory.call(value);
-    originalItems = FXCollections.observableArrayList();
-    for (T child : children) {
-      originalItems.add(new JFXRecursiveTreeItem<>(child, getGraphic(), childrenFactory));
+  private Predicate<TreeItem<T>> createFilter() {
+    return new Predicate<TreeItem<T>>() {
+      @Override
+      public boolean test(TreeItem<T> child) {
+        // Set the predicate of child items to force filtering
+        if (child instanceof JFXRecursiveTreeItem) {
+          if (((JFXRecursiveTreeItem<?>) child).hasChildItems()) {
+            JFXRecursiveTreeItem<T> filterableChild = (JFXRecursiveTreeItem<T>) child;
+            filterableChild.setPredicate(JFXRecursiveTreeItem.this.predicate.get());
+          }
+        }
+        return isVisible(child, JFXRecursiveTreeItem.this.predicate.get());
+      }
+    };
+  }
+
+  /**
+   * Decides about a child whose own children have been filtered already.
+   */
+  private boolean isVisible(final TreeItem<T> child, final Predicate<TreeItem<T>> p) {
+    // If there is no predicate, keep this tree item
+    if (p == null) {
+      return true;
+    }
+    // If there are children, keep this tree item
+    if (child.getChildren().size() > 0) {
+      return true;
     }
+    // If its a group node keep this item if it has children
+    if (child.getValue() instanceof JFXRecursiveTreeObject
+        && child.getValue().getClass() == JFXRecursiveTreeObject.class) {
+      return child.getChildren().size() != 0;
+    }
+    // Otherwise ask the TreeItemPredicate
+    return p.test(child);
+  }
 
-    filteredItems = new FilteredList<>(originalItems, (TreeItem<T> t) -> true);
+  /**
+   * Filters the children and their descendants, applying only the differences to the currently
+   * visible children.
+   *
+   * @param p The new predicate.
+   * @param test Decides about the children, p itself or a precomputed result of p.
+   * @param refine Whether p is narrower than the previous predicate, hidden children stay hidden.
+   */
+  private void filter(final Predicate<TreeItem<T>> p, final Predicate<TreeItem<T>> test,
+      final boolean refine) {
+    if (!materialized) {
+      // unfiltered children are created on expansion, filtered ones now
+      if (filters(p)) {
+        materialize();
+      }
+      return;
+    }
+    final ObservableList<TreeItem<T>> visible = getChildren();
+    final int size = originalItems.size();
+    final BitSet was = new BitSet(size);
+    final BitSet now = new BitSet(size);
+    int pos = 0;
+    for (int i = 0; i < size; i++) {
+      final TreeItem<T> child = originalItems.get(i);
+      if (pos < visible.size() && visible.get(pos) == child) {
+        was.set(i);
+        pos++;
+      } else if (refine) {
+        continue;
+      }
+      if (child instanceof JFXRecursiveTreeItem
+          && ((JFXRecursiveTreeItem<?>) child).hasChildItems()) {
+        ((JFXRecursiveTreeItem<T>) child).push(p, test, refine);
+      }
+      if (isVisible(child, test)) {
+        now.set(i);
+      }
+    }
+    if (countRuns(was, now, size) > MAX_RUNS) {
+      final List<TreeItem<T>> all = new ArrayList<>(now.cardinality());
+      for (int i = now.nextSetBit(0); i >= 0; i = now.nextSetBit(i + 1)) {
+        all.add(originalItems.get(i));
+      }
+      visible.setAll(all);
+      return;
+    }
+    // apply runs of removals and insertions
+    pos = 0;
+    int i = 0;
+    while (i < size) {
+      if (was.get(i) && now.get(i)) {
+        pos++;
+        i++;
+      } else if (was.get(i)) {
+        int count = 0;
+        while (i < size && !now.get(i)) {
+          if (was.get(i)) {
+            count++;
+          }
+          i++;
+        }
+        visible.remove(pos, pos + count);
+      } else if (now.get(i)) {
+        final List<TreeItem<T>> run = new ArrayList<>();
+        while (i < size && !was.get(i)) {
+          if (now.get(i)) {
+            run.add(originalItems.get(i));
+          }
+          i++;
+        }
+        visible.addAll(pos, run);
+        pos += run.size();
+      } else {
+        i++;
+      }
+    }
+  }
 
-    this.getChildren().addAll(originalItems);
+  /**
+   * Counts the ranges of children to remove or insert.
+   */
+  private static int countRuns(final BitSet was, final BitSet now, final int size) {
+    int runs = 0;
+    int last = 0;
+    for (int i = 0; i < size; i++) {
+      final int state = (was.get(i) ? 1 : 0) | (now.get(i) ? 2 : 0);
+      if (state == 0) {
+        continue;
+      }
+      if (state != last && state != 3) {
+        runs++;
+      }
+      last = state;
+    }
+    return runs;
+  }
 
-    children.addListener((ListChangeListener<T>) change -> {
-      while (change.next()) {
-        if (change.wasAdded()) {
-          change.getAddedSubList().forEach(t -> {
-            JFXRecursiveTreeItem<T> newItem =
-                new JFXRecursiveTreeItem<>(t, getGraphic(), childrenFactory);
-            JFXRecursiveTreeItem.this.getChildren().add(newItem);
-            originalItems.add(newItem);
-          });
-        }
-        if (change.wasRemoved()) {
-          change.getRemoved().forEach(t -> {
-            for (int i = 0; i < JFXRecursiveTreeItem.this.getChildren().size(); i++) {
-              if (this.getChildren().get(i).getValue().equals(t)) {
-                // remove the items from the current/original items list
-                originalItems.remove(this.getChildren().remove(i));
-                i--;
+  /**
+   * Takes over the predicate of the parent without filtering a second time.
+   */
+  private void push(final Predicate<TreeItem<T>> p, final Predicate<TreeItem<T>> test,
+      final boolean refine) {
+    this.pushing = true;
+    try {
+      setPredicate(p);
+    } finally {
+      this.pushing = false;
+    }
+    filter(p, test, refine);
+  }
+
+  /**
+   * Evaluates the predicate for all descendants in parallel on the {@link RCoreController}'s
+   * executor, then applies the result as one incremental filter pass. A later predicate change
+   * cancels the evaluation. Must be called on the FX application thread, the predicate has to be
+   * thread-safe.
+   *
+   * @param predicate The new predicate.
+   * @return Completes with true once the predicate is applied, or false if it has been superseded.
+   *         Completes exceptionally if the predicate threw.
+   */
+  public CompletableFuture<Boolean> setPredicateAsync(final Predicate<TreeItem<T>> predicate) {
+    supersede();
+    final long gen = this.generation;
+    final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    this.evaluated = result;
+    final Object token = new Object();
+    final List<JFXRecursiveTreeItem<T>> flat = new ArrayList<>();
+    flatten(token, flat, predicate != null);
+    final int size = flat.size();
+    this.evaluation = RCoreController.instance().runTask(() -> {
+      final long[] words = new long[(size + 63) >>> 6];
+      try {
+        if (predicate != null) {
+          IntStream.range(0, words.length).parallel().forEach(w -> {
+            if (this.generation != gen) {
+              return;
+            }
+            long word = 0;
+            for (int i = w << 6, end = Math.min(size, i + 64); i < end; i++) {
+              if (predicate.test(flat.get(i))) {
+                word |= 1L << (i & 63);
               }
             }
-            // final List<TreeItem<T>> itemsToRemove = RecursiveTreeItem.this.getChildren().stream()
-            // .filter(treeItem -> treeItem.getValue().equals(t)).collect(Collectors.toList());
-            // RecursiveTreeItem.this.getChildren().removeAll(itemsToRemove);
+            words[w] = word;
           });
         }
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+        return;
       }
+      final BitSet matches = BitSet.valueOf(words);
+      Platform.runLater(() -> {
+        if (this.generation != gen) {
+          result.complete(false);
+          return;
+        }
+        this.evaluation = null;
+        this.evaluated = null;
+        final Predicate<TreeItem<T>> test = predicate == null ? null : item -> {
+          if (item instanceof JFXRecursiveTreeItem
+              && ((JFXRecursiveTreeItem<?>) item).flatToken == token) {
+            return matches.get(((JFXRecursiveTreeItem<?>) item).flatIndex);
+          }
+          return predicate.test(item);
+        };
+        try {
+          push(predicate, test, false);
+        } catch (RuntimeException e) {
+          result.completeExceptionally(e);
+          return;
+        }
+        result.complete(true);
+      });
     });
+    return result;
+  }
+
+  /**
+   * Outdates a running asynchronous evaluation.
+   */
+  private void supersede() {
+    this.generation++;
+    if (this.evaluation != null) {
+      this.evaluation.cancel(true);
+      this.evaluation = null;
+    }
+    if (this.evaluated != null) {
+      this.evaluated.complete(false);
+      this.evaluated = null;
+    }
+  }
+
+  /**
+   * @param materialize Whether to create the child items of lazy items.
+   */
+  private void flatten(final Object token, final List<JFXRecursiveTreeItem<T>> flat,
+      final boolean materialize) {
+    for (TreeItem<T> child : originalItems) {
+      if (child instanceof JFXRecursiveTreeItem) {
+        final JFXRecursiveTreeItem<T> item = (JFXRecursiveTreeItem<T>) child;
+        item.flatToken = token;
+        item.flatIndex = flat.size();
+        flat.add(item);
+        if (materialize) {
+          item.materialize();
+        }
+        item.flatten(token, flat, materialize);
+      }
+    }
+  }
+
+  /**
+   * Sets a predicate that accepts at most the items accepted by the current one. In incremental
+   * mode only the visible children are tested.
+   *
+   * @param predicate The narrower predicate.
+   */
+  public final void refinePredicate(final Predicate<TreeItem<T>> predicate) {
+    this.refining = true;
+    setPredicate(predicate);
+    this.refining = false;
+  }
+
+  /**
+   * Switches the incremental filter mode of this item and its descendants.
+   *
+   * @param incremental Whether to apply predicate changes as a diff of the visible children.
+   */
+  public void setIncrementalFilter(final boolean incremental) {
+    if (this.incremental == incremental) {
+      return;
+    }
+    this.incremental = incremental;
+    for (TreeItem<T> child : originalItems) {
+      if (child instanceof JFXRecursiveTreeItem) {
+        ((JFXRecursiveTreeItem<T>) child).setIncrementalFilter(incremental);
+      }
+    }
+    // the incremental passes decide about visibility, the filtered list would only test and push
+    // the predicate again for every changed original item
+    this.filteredItems.setPredicate(incremental ? acceptAll() : createFilter());
+  }
+
+  public boolean isIncrementalFilter() {
+    return this.incremental;
+  }
+
+  private void addChildrenListener(JFXRecursiveTreeObject<T> value) {
+    detachSource();
+    final ObservableList<T> children = childrenFactory.call(value);
+    this.source = children;
+    this.materialized = false;
+    originalItems = FXCollections.observableArrayList();
+    filteredItems = new FilteredList<>(originalItems, (TreeItem<T> t) -> true);
+    if (!lazy) {
+      materialize();
+    }
+
+    // originalItems mirrors the order of children, so changes are applied by position
+    sourceListener = change -> {
+      if (!materialized) {
+        // only whether there are children at all is of interest
+        Event.fireEvent(this, new TreeModificationEvent<>(childrenModificationEvent(), this));
+        return;
+      }
+      while (change.next()) {
+        if (change.wasPermutated()) {
+          permute(change);
+          continue;
+        }
+        if (change.wasRemoved()) {
+          removeChildren(change.getFrom(), change.getRemovedSize());
+        }
+        if (change.wasAdded()) {
+          addChildren(change.getFrom(), change.getAddedSubList());
+        }
+      }
+    };
+    children.addListener(sourceListener);
+  }
 
+  private void detachSource() {
+    if (source != null && sourceListener != null) {
+      source.removeListener(sourceListener);
+    }
+    sourceListener = null;
+  }
+
+  /**
+   * Stops tracking the children lists of this item and its descendants. Call before dropping an
+   * item whose data lists live on, e.g. a replaced root.
+   */
+  public void dispose() {
+    supersede();
+    detachSource();
+    for (TreeItem<T> child : originalItems) {
+      if (child instanceof JFXRecursiveTreeItem) {
+        ((JFXRecursiveTreeItem<T>) child).dispose();
+      }
+    }
+  }
+
+  /**
+   *
+   * @param from Index in {@link #originalItems}, or its size.
+   * @return The number of visible children preceding the original item at <code>from</code>.
+   */
+  private int visibleIndex(final int from) {
+    final ObservableList<TreeItem<T>> visible = getChildren();
+    if (visible.size() == originalItems.size()) {
+      return from;
+    }
+    if (from >= originalItems.size()) {
+      return visible.size();
+    }
+    // the visible children are a subsequence of the original items
+    final long key = orderOf(originalItems.get(from));
+    int lo = 0;
+    int hi = visible.size();
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (orderOf(visible.get(mid)) < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static long orderOf(final TreeItem<?> item) {
+    return ((JFXRecursiveTreeItem<?>) item).order;
+  }
+
+  /**
+   * Assigns increasing {@link #order} keys to original items inserted between their neighbours.
+   * All original items are numbered anew if the gap is too small.
+   *
+   * @param from Index of the first inserted item in {@link #originalItems}.
+   * @param count Number of inserted items.
+   */
+  private void numberChildren(final int from, final int count) {
+    final int to = from + count;
+    final int size = originalItems.size();
+    final long lo;
+    final long hi;
+    if (from > 0) {
+      lo = orderOf(originalItems.get(from - 1));
+      hi = to < size ? orderOf(originalItems.get(to)) : lo + (count + 1) * ORDER_STEP;
+    } else if (to < size) {
+      hi = orderOf(originalItems.get(to));
+      lo = hi - (count + 1) * ORDER_STEP;
+    } else {
+      lo = 0;
+      hi = (count + 1) * ORDER_STEP;
+    }
+    final long step = (hi - lo) / (count + 1);
+    if (step == 0) {
+      for (int i = 0; i < size; i++) {
+        ((JFXRecursiveTreeItem<?>) originalItems.get(i)).order = i * ORDER_STEP;
+      }
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      ((JFXRecursiveTreeItem<?>) originalItems.get(from + i)).order = lo + (i + 1) * step;
+    }
+  }
+
+  private void removeChildren(final int from, final int count) {
+    final int start = visibleIndex(from);
+    final int end = visibleIndex(from + count);
+    getChildren().remove(start, end);
+    final List<TreeItem<T>> removed = originalItems.subList(from, from + count);
+    for (TreeItem<T> child : removed) {
+      if (child instanceof JFXRecursiveTreeItem) {
+        ((JFXRecursiveTreeItem<T>) child).dispose();
+      }
+    }
+    removed.clear();
+  }
+
+  private void addChildren(final int from, final List<? extends T> values) {
+    final int start = visibleIndex(from);
+    final List<TreeItem<T>> items = new ArrayList<>(values.size());
+    final List<TreeItem<T>> shown = new ArrayList<>(values.size());
+    final Predicate<TreeItem<T>> p = predicate.get();
+    for (T t : values) {
+      final JFXRecursiveTreeItem<T> newItem = createChild(t);
+      items.add(newItem);
+      if (incremental && filters(p)) {
+        if (newItem.hasChildItems()) {
+          newItem.push(p, p, false);
+        }
+        if (!isVisible(newItem, p)) {
+          continue;
+        }
+      }
+      shown.add(newItem);
+    }
+    originalItems.addAll(from, items);
+    numberChildren(from, items.size());
+    getChildren().addAll(start, shown);
+  }
+
+  private JFXRecursiveTreeItem<T> createChild(final T value) {
+    final JFXRecursiveTreeItem<T> item =
+        new JFXRecursiveTreeItem<>(value, getGraphic(), childrenFactory, lazy);
+    if (incremental) {
+      item.setIncrementalFilter(true);
+    }
+    return item;
+  }
+
+  /**
+   * Creates the child items unless they exist already. If a predicate is set, only the children it
+   * accepts are shown.<br>
+   * Lazy items call this on first expansion or once a predicate needs their children.
+   */
+  private void materialize() {
+    if (materialized || source == null) {
+      return;
+    }
+    materialized = true;
+    final Predicate<TreeItem<T>> p = predicate.get();
+    final List<TreeItem<T>> items = new ArrayList<>(source.size());
+    final List<TreeItem<T>> shown = new ArrayList<>(source.size());
+    for (T t : source) {
+      final JFXRecursiveTreeItem<T> item = createChild(t);
+      items.add(item);
+      if (incremental && filters(p)) {
+        if (item.hasChildItems()) {
+          item.push(p, p, false);
+        }
+        if (!isVisible(item, p)) {
+          continue;
+        }
+      }
+      shown.add(item);
+    }
+    originalItems.setAll(items);
+    numberChildren(0, items.size());
+    if (incremental) {
+      getChildren().setAll(shown);
+    } else {
+      getChildren().setAll(filteredItems);
+    }
+  }
+
+  /**
+   * @return Whether there are child items or values to create child items for.
+   */
+  private boolean hasChildItems() {
+    return materialized ? !originalItems.isEmpty() : source != null && !source.isEmpty();
+  }
+
+  @Override
+  public boolean isLeaf() {
+    return materialized ? super.isLeaf() : source == null || source.isEmpty();
+  }
+
+  /**
+   * @return Whether the predicate may hide items, neither null nor the initial one.
+   */
+  private static boolean filters(final Predicate<?> p) {
+    return p != null && p != ACCEPT_ALL;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> Predicate<E> acceptAll() {
+    return (Predicate<E>) ACCEPT_ALL;
+  }
+
+  private void permute(final ListChangeListener.Change<? extends T> change) {
+    final List<TreeItem<T>> ordered = new ArrayList<>(originalItems);
+    for (int i = change.getFrom(); i < change.getTo(); i++) {
+      ordered.set(change.getPermutation(i), originalItems.get(i));
+    }
+    final Set<TreeItem<T>> shown = Collections.newSetFromMap(new IdentityHashMap<>());
+    shown.addAll(getChildren());
+    final List<TreeItem<T>> visible = new ArrayList<>(shown.size());
+    for (TreeItem<T> item : ordered) {
+      if (shown.contains(item)) {
+        visible.add(item);
+      }
+    }
+    originalItems.setAll(ordered);
+    numberChildren(0, ordered.size());
+    getChildren().setAll(visible);
   }
 
   public final ObjectProperty<Predicate<TreeItem<T>>> predicateProperty() {
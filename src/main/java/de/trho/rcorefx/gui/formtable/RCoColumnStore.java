@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 trh0 - https://trho.de - https://github.com/trh0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package de.trho.rcorefx.gui.formtable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar storage for the rows of a {@link RCoreFormTable}.<br>
+ * Cell values are kept in one array per column, keys, labels and validator regexes once in the
+ * {@link RCoTableSchema}. Rows
+ * are {@link RCoTableObject}s referencing a row index, their cell properties are created on demand
+ * only.<br>
+ * Values may be read concurrently, e.g. by a background filter, writes are exclusive.
+ *
+ * @author trh0 - TKoll
+ *
+ */
+public class RCoColumnStore {
+
+  private static final int      INITIAL_CAPACITY = 16;
+
+  private final RCoTableSchema  schema;
+  private final ReadWriteLock   lock             = new ReentrantReadWriteLock();
+  private final List<String[]>  values           = new ArrayList<>();
+  private int                   capacity         = INITIAL_CAPACITY;
+  private int                   rows             = 0;
+
+  /**
+   *
+   * @param keys Keys of the initial columns.
+   */
+  public RCoColumnStore(final String... keys) {
+    this(new RCoTableSchema(keys));
+  }
+
+  /**
+   *
+   * @param schema The columns of the store, may be shared with other stores or rows.
+   */
+  public RCoColumnStore(final RCoTableSchema schema) {
+    this.schema = schema;
+  }
+
+  public RCoTableSchema getSchema() {
+    return this.schema;
+  }
+
+  /**
+   *
+   * @param key The column's key.
+   * @return The index of the column, -1 if there is no such column.
+   */
+  public int column(final String key) {
+    return schema.column(key);
+  }
+
+  /**
+   * Adds a column unless it exists already.
+   *
+   * @param key The column's key.
+   * @return The index of the column.
+   */
+  public int addColumn(final String key) {
+    return schema.addColumn(key);
+  }
+
+  /**
+   * Returns the values of a column, columns added to the schema get their array on first access.
+   */
+  private String[] values(final int col) {
+    while (values.size() <= col) {
+      values.add(new String[capacity]);
+    }
+    return values.get(col);
+  }
+
+  /**
+   * Appends a row.
+   *
+   * @param pairs Key-Value pairs of the row. Unknown keys add a column.
+   * @return The index of the row.
+   */
+  public int addRow(final String... pairs) {
+    lock.writeLock().lock();
+    try {
+      final int row = addRows(1);
+      for (int i = 0; i + 1 < pairs.length; i += 2) {
+        values(addColumn(pairs[i]))[row] = pairs[i + 1];
+      }
+      return row;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Appends empty rows.
+   *
+   * @param count Number of rows to append.
+   * @return The index of the first appended row.
+   */
+  public int addRows(final int count) {
+    lock.writeLock().lock();
+    try {
+      ensureCapacity(rows + count);
+      final int first = rows;
+      rows += count;
+      return first;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void ensureCapacity(final int min) {
+    if (min <= capacity) {
+      return;
+    }
+    int cap = capacity;
+    while (cap < min) {
+      cap += cap >> 1;
+    }
+    for (int i = 0; i < values.size(); i++) {
+      values.set(i, Arrays.copyOf(values.get(i), cap));
+    }
+    capacity = cap;
+  }
+
+  public String get(final int row, final int col) {
+    lock.readLock().lock();
+    try {
+      checkRow(row);
+      // columns added to the schema since the last write have no values yet
+      return col < values.size() ? values.get(col)[row] : null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void set(final int row, final int col, final String value) {
+    lock.writeLock().lock();
+    try {
+      checkRow(row);
+      values(col)[row] = value;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void checkRow(final int row) {
+    if (row < 0 || row >= rows) {
+      throw new IndexOutOfBoundsException("row=" + row + ", rows=" + rows);
+    }
+  }
+
+  public String getLabel(final String key) {
+    return schema.getLabel(key);
+  }
+
+  public void setLabel(final String key, final String label) {
+    schema.setLabel(key, label);
+  }
+
+  public String getValidatorRegex(final String key) {
+    return schema.getValidatorRegex(key);
+  }
+
+  public void setValidatorRegex(final String key, final String regex) {
+    schema.setValidatorRegex(key, regex);
+  }
+
+  public List<String> getKeys() {
+    return schema.getKeys();
+  }
+
+  public int getColumnCount() {
+    return schema.getColumnCount();
+  }
+
+  public int getRowCount() {
+    lock.readLock().lock();
+    try {
+      return rows;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   *
+   * @return One new {@link RCoTableObject} per row.
+   */
+  public List<RCoTableObject> createRows() {
+    final int count = getRowCount();
+    final List<RCoTableObject> objs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      objs.add(new RCoTableObject(this, i));
+    }
+    return objs;
+  }
+
+}
@@ -27,14 +27,20 @@ public class RCoTableColumn extends TreeTableColumn<RCoTableObject, String> {
     return this.key;
   }
 
+  public String getValidatorRegex() {
+    return this.regex;
+  }
+
   private final String            label;
   private final String            key;
+  private final String            regex;
   private volatile StringProperty cellValue;
 
   public RCoTableColumn(final String label, final String key, final String regex) {
     super(label);
     this.label = label;
     this.key = key;
+    this.regex = regex;
     this.setPrefWidth(250);
     this.setCellFactory(param -> new TreeTableCell<>());
     this.setCellValueFactory(param -> {
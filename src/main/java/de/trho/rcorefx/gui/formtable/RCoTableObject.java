@@ -14,80 +14,200 @@
 package de.trho.rcorefx.gui.formtable;
 
 import de.trho.rcorefx.util.RCoreUtils;
+import java.lang.ref.WeakReference;
 import java.util.List;
-import java.util.stream.Collectors;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableMap;
 
+/**
+ * A row of a {@link RCoreFormTable}. Either holds its values in a map of properties, or refers to a
+ * row of a {@link RCoColumnStore}. Keys, labels and validators are kept in a
+ * {@link RCoTableSchema}, usually shared by all rows of a table.
+ *
+ * @author trh0 - TKoll
+ *
+ */
 public class RCoTableObject extends JFXRecursiveTreeObject<RCoTableObject> implements RCoIFormProperty {
 
+  /**
+   * @deprecated Validators are kept in the {@link RCoTableSchema}.
+   */
+  @Deprecated
   public static final String                  RGX_PREFIX = "validator_";
+  /**
+   * @deprecated Labels are kept in the {@link RCoTableSchema}.
+   */
+  @Deprecated
   public static final String                  LBL_PREFIX = "_lbl";
 
   final ObservableMap<String, StringProperty> values;
+  private final RCoTableSchema                schema;
+  private final RCoColumnStore                store;
+  private final int                           row;
+  /**
+   * Properties of the store backed cells requested so far, by column.
+   */
+  private WeakReference<StringProperty>[]     cells;
 
+  /**
+   * Creates a row with a schema of its own.
+   * 
+   * @param values Key-Value pairs of the row.
+   */
   public RCoTableObject(final String... values) {
+    this(new RCoTableSchema(), values);
+  }
+
+  /**
+   * 
+   * @param schema The schema of the table, unknown keys are added to it.
+   * @param values Key-Value pairs of the row.
+   */
+  public RCoTableObject(final RCoTableSchema schema, final String... values) {
     this.values = FXCollections.observableHashMap();
     this.values.putAll(RCoreUtils.asMap(values));
+    this.schema = schema;
+    this.store = null;
+    this.row = -1;
+    for (int i = 0; i + 1 < values.length; i += 2) {
+      schema.addColumn(values[i]);
+    }
+  }
+
+  /**
+   *
+   * @param store The store holding the values.
+   * @param row Index of the row in the store.
+   */
+  public RCoTableObject(final RCoColumnStore store, final int row) {
+    this.values = null;
+    this.schema = store.getSchema();
+    this.store = store;
+    this.row = row;
+  }
+
+  public RCoTableSchema getSchema() {
+    return this.schema;
+  }
+
+  public RCoColumnStore getStore() {
+    return this.store;
+  }
+
+  public int getRow() {
+    return this.row;
+  }
+
+  /**
+   * Returns the cell's live property, creating it if it is not referenced anymore. Changes of the
+   * property are written to the store.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private StringProperty cell(final int col) {
+    if (cells == null || cells.length <= col) {
+      final WeakReference<StringProperty>[] grown =
+          new WeakReference[Math.max(col + 1, store.getColumnCount())];
+      if (cells != null) {
+        System.arraycopy(cells, 0, grown, 0, cells.length);
+      }
+      cells = grown;
+    }
+    StringProperty p = cells[col] == null ? null : cells[col].get();
+    if (p == null) {
+      p = new SimpleStringProperty(store.get(row, col));
+      p.addListener((obs, o, n) -> store.set(row, col, n));
+      cells[col] = new WeakReference<>(p);
+    }
+    return p;
+  }
+
+  private StringProperty liveCell(final int col) {
+    return cells == null || cells.length <= col || cells[col] == null ? null : cells[col].get();
   }
 
   @Override
   public synchronized StringProperty getValue(String key) {
+    if (store != null) {
+      return cell(store.addColumn(key));
+    }
     StringProperty p = this.values.get(key);
     if (p == null) {
+      schema.addColumn(key);
       p = new SimpleStringProperty();
       this.values.put(key, p);
     }
     return p;
   }
 
+  /**
+   * Reads a value without creating a property for it.
+   * 
+   * @param key The value's key.
+   * @return The value or null.
+   */
+  public synchronized String peekValue(final String key) {
+    if (store != null) {
+      final int col = store.column(key);
+      return col < 0 ? null : store.get(row, col);
+    }
+    final StringProperty p = this.values.get(key);
+    return p == null ? null : p.get();
+  }
+
   @Override
   public synchronized void setValue(String key, String value) {
+    if (store != null) {
+      final int col = store.addColumn(key);
+      final StringProperty p = liveCell(col);
+      if (p != null) {
+        p.setValue(value);
+      } else {
+        store.set(row, col, value);
+      }
+      return;
+    }
     StringProperty p = this.values.get(key);
     if (p == null) {
+      schema.addColumn(key);
       p = new SimpleStringProperty();
+      this.values.put(key, p);
     }
     p.setValue(value);
-    this.values.put(key, p);
   }
 
   @Override
-  public synchronized String getValidatorRegex(String key) {
-    StringProperty p = this.values.get(RGX_PREFIX + key);
-    if (p == null) {
-      p = new SimpleStringProperty();
-      this.values.put(RGX_PREFIX + key, p);
-    }
-    return p.get();
+  public String getValidatorRegex(String key) {
+    return schema.getValidatorRegex(key);
   }
 
   @Override
-  public synchronized void setValidatorRegex(String key, String regex) {
-    this.setValue(RGX_PREFIX + key, regex);
+  public void setValidatorRegex(String key, String regex) {
+    schema.setValidatorRegex(key, regex);
   }
 
   @Override
   public int getPropertiesCount() {
-    return this.values.size();
+    return schema.getColumnCount();
   }
 
+  /**
+   * @return The keys of the schema. The list is shared, not copied.
+   */
   @Override
-  public synchronized List<String> getKeys() {
-    return this.values.keySet().stream()
-        .filter(key -> !key.contains(LBL_PREFIX) && !key.contains(RGX_PREFIX))
-        .collect(Collectors.toList());
+  public List<String> getKeys() {
+    return schema.getKeys();
   }
 
   @Override
-  public synchronized void setLabel(String key, String label) {
-    this.setValue(LBL_PREFIX + key, label);
+  public void setLabel(String key, String label) {
+    schema.setLabel(key, label);
   }
 
   @Override
-  public synchronized String getLabel(String key) {
-    return this.getValue(LBL_PREFIX + key).get();
+  public String getLabel(String key) {
+    return schema.getLabel(key);
   }
 
 }
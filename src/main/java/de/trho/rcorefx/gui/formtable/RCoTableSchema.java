@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 trh0 - https://trho.de - https://github.com/trh0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package de.trho.rcorefx.gui.formtable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered column keys of a table together with their labels and validator regexes. Shared by all
+ * {@link RCoTableObject}s of a table, so rows hold values only.
+ *
+ * @author trh0 - TKoll
+ *
+ */
+public class RCoTableSchema {
+
+  private final List<String>         keys             = new ArrayList<>();
+  private final List<String>         unmodifiableKeys = Collections.unmodifiableList(keys);
+  private final Map<String, Integer> columns          = new HashMap<>();
+  private final List<String>         labels           = new ArrayList<>();
+  private final List<String>         regexes          = new ArrayList<>();
+
+  /**
+   *
+   * @param keys Keys of the initial columns.
+   */
+  public RCoTableSchema(final String... keys) {
+    for (String key : keys) {
+      addColumn(key);
+    }
+  }
+
+  /**
+   *
+   * @param key The column's key.
+   * @return The index of the column, -1 if there is no such column.
+   */
+  public synchronized int column(final String key) {
+    final Integer col = columns.get(key);
+    return col == null ? -1 : col;
+  }
+
+  /**
+   * Adds a column unless it exists already.
+   *
+   * @param key The column's key.
+   * @return The index of the column.
+   */
+  public synchronized int addColumn(final String key) {
+    final Integer col = columns.get(key);
+    if (col != null) {
+      return col;
+    }
+    keys.add(key);
+    labels.add(null);
+    regexes.add(null);
+    columns.put(key, keys.size() - 1);
+    return keys.size() - 1;
+  }
+
+  /**
+   *
+   * @param key The column's key.
+   * @return The column's label, the key if no label has been set.
+   */
+  public synchronized String getLabel(final String key) {
+    final int col = column(key);
+    final String label = col < 0 ? null : labels.get(col);
+    return label == null ? key : label;
+  }
+
+  public synchronized void setLabel(final String key, final String label) {
+    labels.set(addColumn(key), label);
+  }
+
+  public synchronized String getValidatorRegex(final String key) {
+    final int col = column(key);
+    return col < 0 ? null : regexes.get(col);
+  }
+
+  public synchronized void setValidatorRegex(final String key, final String regex) {
+    regexes.set(addColumn(key), regex);
+  }
+
+  /**
+   *
+   * @return The column keys in insertion order. The list is not copied, it reflects added columns.
+   */
+  public List<String> getKeys() {
+    return unmodifiableKeys;
+  }
+
+  /**
+   *
+   * @return A copy of the column keys in insertion order, safe to iterate on any thread.
+   */
+  public synchronized List<String> copyKeys() {
+    return new ArrayList<>(keys);
+  }
+
+  public synchronized int getColumnCount() {
+    return keys.size();
+  }
+
+}
@@ -15,8 +15,13 @@ package de.trho.rcorefx.gui.formtable;
 
 
 import de.trho.rcorefx.util.RCoreUtils;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -27,9 +32,22 @@ import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeTableView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import org.reactfx.EventStreams;
 
+/**
+ * Table of {@link RCoTableObject}s. Rows containing the text of the filter field in any column are
+ * shown once typing pauses for {@link #FILTER_DELAY}, matching runs in the background.
+ * 
+ * @author trh0 - TKoll
+ *
+ */
 public class RCoreFormTable extends GridPane {
 
+  /**
+   * Quiet period after the last change of the filter text before it is applied.
+   */
+  public static final Duration                 FILTER_DELAY = Duration.ofMillis(250);
+
   @FXML
   private HBox                               c_ctrl;
   @FXML
@@ -40,6 +58,8 @@ public class RCoreFormTable extends GridPane {
   private TreeTableView<RCoTableObject>        table;
   private volatile boolean                   init    = false;
   private final ObservableList<RCoTableObject> records = FXCollections.observableArrayList();
+  private JFXRecursiveTreeItem<RCoTableObject>  root;
+  private String                               query   = "";
 
   public RCoreFormTable() {}
 
@@ -59,7 +79,28 @@ public class RCoreFormTable extends GridPane {
       initTable();
   }
 
+  /**
+   * Shows the rows of a store. Columns, labels and validators are taken from the store once, the
+   * cells of each row are only wrapped in properties while they are shown or edited.
+   * 
+   * @param store The store holding the rows.
+   */
+  public void setStore(final RCoColumnStore store) {
+    this.table.getColumns().clear();
+    this.init = false;
+    if (this.root != null) {
+      // the old root would otherwise build items for the new rows as well
+      this.root.dispose();
+      this.root = null;
+    }
+    this.records.setAll(store.createRows());
+    initTable();
+  }
+
   private void initTable() {
+    if (this.records.isEmpty()) {
+      return;
+    }
     final RCoTableObject rec = this.records.get(0);
     final List<RCoTableColumn> cols = new ArrayList<>();
     rec.getKeys().forEach(k -> {
@@ -67,9 +108,73 @@ public class RCoreFormTable extends GridPane {
       cols.add(col);
     });
     this.table.getColumns().addAll(cols);
-    final TreeItem<RCoTableObject> root =
-        new JFXRecursiveTreeItem<RCoTableObject>(this.records, JFXRecursiveTreeObject::getChildren);
+    this.init = true;
+    this.root =
+        new JFXRecursiveTreeItem<RCoTableObject>(this.records, JFXRecursiveTreeObject::getChildren,
+            true);
+    this.root.setIncrementalFilter(true);
     table.setRoot(root);
+    if (!this.query.isEmpty()) {
+      applyFilter();
+    }
+  }
+
+  /**
+   * Applies a filter text. Evaluations of previous texts still running are dropped.
+   * 
+   * @param text The text to search for, case insensitive.
+   */
+  public void setFilter(final String text) {
+    this.query = text == null ? "" : text.trim();
+    if (this.root != null) {
+      applyFilter();
+    }
+  }
+
+  private void applyFilter() {
+    this.root.setPredicateAsync(createFilter(this.query, this.records))
+        .whenComplete((applied, e) -> {
+          if (e != null) {
+            e.printStackTrace();
+          }
+        });
+  }
+
+  /**
+   * 
+   * @param text The text to search for.
+   * @param rows The rows whose column keys are copied, the schemas may get columns added while the
+   *        predicate is evaluated in the background.
+   * @return A predicate matching rows containing the text in any column, null if the text is empty.
+   */
+  private static Predicate<TreeItem<RCoTableObject>> createFilter(final String text,
+      final List<RCoTableObject> rows) {
+    if (text.isEmpty()) {
+      return null;
+    }
+    // user input, kept out of the shared pattern cache
+    final Pattern p = Pattern.compile("(?iu)" + Pattern.quote(text));
+    final Map<RCoTableSchema, List<String>> keys = new IdentityHashMap<>();
+    for (RCoTableObject row : rows) {
+      keys.computeIfAbsent(row.getSchema(), RCoTableSchema::copyKeys);
+    }
+    return item -> {
+      final RCoTableObject row = item.getValue();
+      if (row == null) {
+        return false;
+      }
+      List<String> columns = keys.get(row.getSchema());
+      if (columns == null) {
+        columns = row.getSchema().copyKeys();
+      }
+      for (String key : columns) {
+        final String value = row.peekValue(key);
+        if (value != null && p.matcher(value).find()) {
+          return true;
+        }
+      }
+      return false;
+    };
   }
 
   @FXML
@@ -78,18 +183,21 @@ public class RCoreFormTable extends GridPane {
     });
     String id = "id";
     String fn = "firstName";
+    final RCoTableSchema schema = new RCoTableSchema(id, fn);
+    schema.setLabel(id, "ID");
+    schema.setValidatorRegex(id, "[a-z]+");
+    schema.setLabel(fn, "FIRSTNAME");
+    schema.setValidatorRegex(fn, "[a-z]+");
     for (int i = 0; i < 74; i++) {
-      RCoTableObject ob =
-          new RCoTableObject(id, String.valueOf(i), fn, RCoreUtils.md5(String.valueOf(i * i)));
-      ob.setLabel(id, "ID");
-      ob.setValidatorRegex(id, "[a-z]+");
-      ob.setLabel(fn, "FIRSTNAME");
-      ob.setValidatorRegex(fn, "[a-z]+");
+      RCoTableObject ob = new RCoTableObject(schema, id, String.valueOf(i), fn,
+          RCoreUtils.md5(String.valueOf(i * i)));
       this.records.add(ob);
     }
     table.setShowRoot(false);
     table.setEditable(true);
     initTable();
+    EventStreams.valuesOf(this.tx_filter.textProperty()).successionEnds(FILTER_DELAY)
+        .subscribe(this::setFilter);
 
   }
 
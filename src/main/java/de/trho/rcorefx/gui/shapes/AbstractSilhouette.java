@@ -13,6 +13,8 @@
  */
 package de.trho.rcorefx.gui.shapes;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
@@ -25,17 +27,34 @@ import javafx.beans.value.ChangeListener;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
+import javafx.scene.shape.Path;
 import javafx.scene.shape.Shape;
 import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.shape.StrokeLineJoin;
 import javafx.scene.shape.StrokeType;
 import javafx.scene.transform.Rotate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 /**
+ * Base of all silhouettes. Changes of geometry properties recalculate the shape right away, unless
+ * they are made between {@link #beginUpdate()} and {@link #endUpdate()}, or pulse updates are
+ * enabled, in which case the shape is recalculated at most once per frame.<br>
+ * Silhouettes built from a {@link PathBuilder} may keep a stable {@link Path}, recalculations then
+ * rewrite its elements in place as long as their structure does not change.
+ *
  * @author Andres Almiray
  */
 public abstract class AbstractSilhouette implements Silhouette {
+  /**
+   * silhouettes to recalculate on the next pulse, accessed on the FX application thread only
+   */
+  private static final Set<AbstractSilhouette> PENDING = new LinkedHashSet<>();
+  private static AnimationTimer                pulse;
+
   private ObjectProperty<Shape>          shape;
   private ObjectProperty<Paint>          fill;
   private BooleanProperty                smooth;
@@ -71,14 +90,148 @@ public abstract class AbstractSilhouette implements Silhouette {
   protected volatile boolean             initializing               = false;
   protected final ChangeListener         updateListener             = (v, o, n) -> {
                                                                       if (!initializing) {
-                                                                        calculateShape();
+                                                                        invalidate();
                                                                       }
                                                                     };
 
+  private int                            updates                    = 0;
+  private boolean                        invalid                    = false;
+  private boolean                        pulseUpdates               = false;
+  private boolean                        stablePath                 = false;
+  private PathBuilder                    builder;
+
+  /**
+   * Recalculates the shape, or marks it for recalculation at the end of the current update or on
+   * the next pulse.
+   */
+  protected void invalidate() {
+    if (updates > 0) {
+      invalid = true;
+    } else if (pulseUpdates) {
+      if (Platform.isFxApplicationThread()) {
+        if (PENDING.add(this) && PENDING.size() == 1) {
+          if (pulse == null) {
+            pulse = new AnimationTimer() {
+              @Override
+              public void handle(long now) {
+                recalculatePending();
+                if (PENDING.isEmpty()) {
+                  stop();
+                }
+              }
+            };
+          }
+          pulse.start();
+        }
+      } else {
+        Platform.runLater(this::invalidate);
+      }
+    } else {
+      calculateShape();
+    }
+  }
+
+  private static void recalculatePending() {
+    final List<AbstractSilhouette> pending = new ArrayList<>(PENDING);
+    PENDING.clear();
+    // recalculations invalidating again are picked up by the next pulse
+    for (AbstractSilhouette silhouette : pending) {
+      silhouette.calculateShape();
+    }
+  }
+
+  /**
+   * Defers recalculations of the shape until the matching {@link #endUpdate()}. Calls may be
+   * nested.
+   */
+  public void beginUpdate() {
+    updates++;
+  }
+
+  /**
+   * Ends an update started with {@link #beginUpdate()}. The outermost call recalculates the shape
+   * once if a geometry property changed meanwhile.
+   */
+  public void endUpdate() {
+    if (updates == 0) {
+      throw new IllegalStateException("endUpdate() without beginUpdate()");
+    }
+    if (--updates == 0 && invalid) {
+      invalid = false;
+      invalidate();
+    }
+  }
+
+  /**
+   * Runs changes of several properties as one update.
+   *
+   * @param changes Sets the properties of this silhouette.
+   */
+  public void update(Runnable changes) {
+    beginUpdate();
+    try {
+      changes.run();
+    } finally {
+      endUpdate();
+    }
+  }
+
+  public boolean isPulseUpdates() {
+    return pulseUpdates;
+  }
+
+  /**
+   * @param pulseUpdates Whether to recalculate the shape at most once per frame instead of on each
+   *        change. Recalculations then happen on the FX application thread.
+   */
+  public void setPulseUpdates(boolean pulseUpdates) {
+    this.pulseUpdates = pulseUpdates;
+  }
+
   protected void setShape(Shape shape) {
     shapeProperty().set(shape);
   }
 
+  /**
+   * @return The path builder of this silhouette, reset. Its buffers are reused by each
+   *         recalculation.
+   */
+  protected PathBuilder pathBuilder() {
+    if (builder == null) {
+      builder = new PathBuilder();
+    }
+    return builder.reset();
+  }
+
+  /**
+   * Sets the path built by a {@link PathBuilder} as shape. In stable path mode the current path is
+   * updated instead, if its elements are of the same kinds.
+   *
+   * @param builder Holds the elements of the path.
+   * @param styleClasses Style classes of a new path.
+   */
+  protected void setPath(PathBuilder builder, String... styleClasses) {
+    final Shape current = shape == null ? null : shape.get();
+    if (stablePath && current instanceof Path && builder.updatePath((Path) current)) {
+      return;
+    }
+    final Path path = builder.build();
+    path.getStyleClass().addAll(styleClasses);
+    setShape(path);
+  }
+
+  public boolean isStablePath() {
+    return stablePath;
+  }
+
+  /**
+   * @param stablePath Whether recalculations update the elements of the current path in place
+   *        instead of replacing the shape, where the structure of the path allows to.
+   */
+  public void setStablePath(boolean stablePath) {
+    this.stablePath = stablePath;
+  }
+
   @Override
   public ObjectProperty<Shape> shapeProperty() {
     if (shape == null) {
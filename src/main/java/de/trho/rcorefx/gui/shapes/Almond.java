@@ -15,9 +15,6 @@ package de.trho.rcorefx.gui.shapes;
 
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Shape;
-import static javafx.scene.shape.Shape.intersect;
 
 /**
  * = Almond
@@ -69,12 +66,11 @@ public class Almond extends AbstractCenteredSilhouette {
     double cy = getCenterY();
     double r = getRadius();
 
-    Circle left = new Circle(cx - (r / 2), cy, r);
-    Circle right = new Circle(cx + (r / 2), cy, r);
+    // the circles around cx - r/2 and cx + r/2 intersect at cx, cy +- h
+    double h = r * Math.sqrt(3) / 2;
+    PathBuilder p = pathBuilder().moveTo(cx, cy - h).arcTo(cx, cy + h, r, r)
+        .arcTo(cx, cy - h, r, r);
 
-    Shape shape = intersect(left, right);
-    shape.getStyleClass().addAll("silhouette", "silhoutte-almond");
-
-    setShape(shape);
+    setPath(p, "silhouette", "silhoutte-almond");
   }
 }
@@ -15,7 +15,6 @@ package de.trho.rcorefx.gui.shapes;
 
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.scene.shape.Path;
 import java.util.logging.Logger;
 
 /**
@@ -174,13 +173,11 @@ public class Arrow extends AbstractSilhouette {
     double d = w * validateDepth(getDepth());
     double r = h * validateRise(getRise()) / 2;
 
-    Path shape = new PathBuilder().moveTo(x, y + (h / 2) - r).lineTo(x + d, y + (h / 2) - r)
+    PathBuilder p = pathBuilder().moveTo(x, y + (h / 2) - r).lineTo(x + d, y + (h / 2) - r)
         .lineTo(x + d, y).lineTo(x + w, y + (h / 2)).lineTo(x + d, y + h)
-        .lineTo(x + d, y + (h / 2) + r).lineTo(x, y + (h / 2) + r).build();
+        .lineTo(x + d, y + (h / 2) + r).lineTo(x, y + (h / 2) + r);
 
-    shape.getStyleClass().addAll("silhouette", "silhoutte-arrow");
-
-    setShape(shape);
+    setPath(p, "silhouette", "silhoutte-arrow");
   }
 
   private double validateDepth(double depth) {
@@ -19,6 +19,7 @@ import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
@@ -149,18 +150,22 @@ public class Asterisk extends AbstractCenteredSilhouette {
     double awh = w * n;
 
     double t = 180 / bc;
-    double a = 0;
-
-    Rectangle beam1 = beam(cx, cy, r, w, awh, a);
-    a = sweepAngle(a, t);
-    Rectangle beam2 = beam(cx, cy, r, w, awh, a);
-    a = sweepAngle(a, t);
-    Shape shape = Shape.union(beam1, beam2);
-    for (int i = 2; i < bc; i++) {
-      Rectangle beam = beam(cx, cy, r, w, awh, a);
+
+    // beams rotate around their own center, so the outline moves with the center only
+    Shape shape = OutlineCache.outline(Arrays.asList(Asterisk.class, r, w, awh, bc), cx, cy, () -> {
+      double a = 0;
+      Rectangle beam1 = beam(0, 0, r, w, awh, a);
       a = sweepAngle(a, t);
-      shape = Shape.union(shape, beam);
-    }
+      Rectangle beam2 = beam(0, 0, r, w, awh, a);
+      a = sweepAngle(a, t);
+      Shape outline = Shape.union(beam1, beam2);
+      for (int i = 2; i < bc; i++) {
+        Rectangle beam = beam(0, 0, r, w, awh, a);
+        a = sweepAngle(a, t);
+        outline = Shape.union(outline, beam);
+      }
+      return outline;
+    });
 
     shape.getStyleClass().addAll("silhouette", "silhoutte-asterisk");
 
@@ -15,7 +15,6 @@ package de.trho.rcorefx.gui.shapes;
 
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.scene.shape.Path;
 
 /**
  * = Astroid
@@ -63,17 +62,15 @@ public class Astroid extends AbstractCenteredSilhouette {
 
   @Override
   protected void calculateShape() {
-    PathBuilder p = new PathBuilder();
+    PathBuilder p = pathBuilder();
 
     double cx = getCenterX();
     double cy = getCenterY();
     double r = getRadius();
 
-    Path path = p.moveTo(cx - r, cy).arcTo(cx, cy - r, r, r, false).arcTo(cx + r, cy, r, r, false)
-        .arcTo(cx, cy + r, r, r, false).arcTo(cx - r, cy, r, r, false).build();
+    p.moveTo(cx - r, cy).arcTo(cx, cy - r, r, r, false).arcTo(cx + r, cy, r, r, false)
+        .arcTo(cx, cy + r, r, r, false).arcTo(cx - r, cy, r, r, false);
 
-    path.getStyleClass().addAll("silhouette", "silhoutte-astroid");
-
-    setShape(path);
+    setPath(p, "silhouette", "silhoutte-astroid");
   }
 }
@@ -17,6 +17,7 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
@@ -120,17 +121,36 @@ public class Cross extends AbstractCenteredSilhouette {
     double w = validateWidth(getWidth(), r);
 
     double arcWH = w * n;
-    Rectangle beam1 = new Rectangle(cx - r, cy - (w / 2), r * 2, w);
-    Rectangle beam2 = new Rectangle(cx - (w / 2), cy - r, w, r * 2);
-    beam1.setArcWidth(arcWH);
-    beam1.setArcHeight(arcWH);
-    beam2.setArcWidth(arcWH);
-    beam2.setArcHeight(arcWH);
-    Shape shape = Shape.union(beam1, beam2);
-
-    shape.getStyleClass().addAll("silhouette", "silhoutte-cross");
+    double hw = w / 2;
+    double a = arcWH / 2;
+    if (r - a < hw) {
+      // the rounded ends reach into the center, left to the geometry engine
+      Shape shape = OutlineCache.outline(Arrays.asList(Cross.class, r, w, arcWH), cx, cy, () -> {
+        Rectangle beam1 = new Rectangle(-r, -hw, r * 2, w);
+        Rectangle beam2 = new Rectangle(-hw, -r, w, r * 2);
+        beam1.setArcWidth(arcWH);
+        beam1.setArcHeight(arcWH);
+        beam2.setArcWidth(arcWH);
+        beam2.setArcHeight(arcWH);
+        return Shape.union(beam1, beam2);
+      });
+      shape.getStyleClass().addAll("silhouette", "silhoutte-cross");
+      setShape(shape);
+      return;
+    }
 
-    setShape(shape);
+    // clockwise, starting at the top beam
+    PathBuilder p = pathBuilder().moveTo(cx - hw, cy - r + a)
+        .arcTo(cx - hw + a, cy - r, a, a).lineTo(cx + hw - a, cy - r)
+        .arcTo(cx + hw, cy - r + a, a, a).lineTo(cx + hw, cy - hw).lineTo(cx + r - a, cy - hw)
+        .arcTo(cx + r, cy - hw + a, a, a).lineTo(cx + r, cy + hw - a)
+        .arcTo(cx + r - a, cy + hw, a, a).lineTo(cx + hw, cy + hw).lineTo(cx + hw, cy + r - a)
+        .arcTo(cx + hw - a, cy + r, a, a).lineTo(cx - hw + a, cy + r)
+        .arcTo(cx - hw, cy + r - a, a, a).lineTo(cx - hw, cy + hw).lineTo(cx - r + a, cy + hw)
+        .arcTo(cx - r, cy + hw - a, a, a).lineTo(cx - r, cy - hw + a)
+        .arcTo(cx - r + a, cy - hw, a, a).lineTo(cx - hw, cy - hw);
+
+    setPath(p, "silhouette", "silhoutte-cross");
   }
 
   protected double validateRoundness(double roundness) {
@@ -17,8 +17,6 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Shape;
 import java.util.logging.Logger;
 
 /**
@@ -132,21 +130,25 @@ public class Donut extends AbstractCenteredSilhouette {
       or = 8;
     }
 
-    Shape innerShape = null;
-    Shape outerShape = null;
-
+    // the inner outline runs the other way round, so the non-zero fill rule leaves it empty
+    PathBuilder p = pathBuilder();
     if (s > 2) {
-      outerShape = new RegularPolygon(cx, cy, or, s).getShape();
-      innerShape = new RegularPolygon(cx, cy, ir, s).getShape();
-
+      double[] outer = RegularPolygon.vertices(cx, cy, or, s);
+      double[] inner = RegularPolygon.vertices(cx, cy, ir, s);
+      p.moveTo(outer[0], outer[1]);
+      for (int i = 2; i < outer.length; i += 2) {
+        p.lineTo(outer[i], outer[i + 1]);
+      }
+      p.close().moveTo(inner[0], inner[1]);
+      for (int i = inner.length - 2; i > 0; i -= 2) {
+        p.lineTo(inner[i], inner[i + 1]);
+      }
     } else {
-      outerShape = new Circle(cx, cy, or);
-      innerShape = new Circle(cx, cy, ir);
+      p.moveTo(cx + or, cy).arcTo(cx - or, cy, or, or, false).arcTo(cx + or, cy, or, or, false)
+          .close();
+      p.moveTo(cx + ir, cy).arcTo(cx - ir, cy, ir, ir, true).arcTo(cx + ir, cy, ir, ir, true);
     }
 
-    Shape shape = Shape.subtract(outerShape, innerShape);
-    shape.getStyleClass().addAll("silhouette", "silhoutte-donut");
-
-    setShape(shape);
+    setPath(p, "silhouette", "silhoutte-donut");
   }
 }
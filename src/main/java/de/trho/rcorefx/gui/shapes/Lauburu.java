@@ -17,7 +17,6 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.scene.shape.Shape;
 
 /**
  * = Lauburu
@@ -97,8 +96,8 @@ public class Lauburu extends AbstractCenteredSilhouette {
     double r = getRadius();
     Direction d = getDirection();
 
-    Shape shape =
-        new PathBuilder().moveTo(cx, cy).arcTo(cx + r, cy, r / 2, r / 2, d == Direction.CLOCKWISE)
+    PathBuilder p =
+        pathBuilder().moveTo(cx, cy).arcTo(cx + r, cy, r / 2, r / 2, d == Direction.CLOCKWISE)
             .arcTo(cx + (r / 2), cy, r / 4, r / 4, d == Direction.CLOCKWISE)
             .arcTo(cx, cy, r / 4, r / 4, d != Direction.CLOCKWISE).close()
             .arcTo(cx - r, cy, r / 2, r / 2, d == Direction.CLOCKWISE)
@@ -109,10 +108,8 @@ public class Lauburu extends AbstractCenteredSilhouette {
             .arcTo(cx, cy, r / 4, r / 4, d != Direction.CLOCKWISE).close()
             .arcTo(cx, cy - r, r / 2, r / 2, d == Direction.CLOCKWISE)
             .arcTo(cx, cy - (r / 2), r / 4, r / 4, d == Direction.CLOCKWISE)
-            .arcTo(cx, cy, r / 4, r / 4, d != Direction.CLOCKWISE).close().build();
+            .arcTo(cx, cy, r / 4, r / 4, d != Direction.CLOCKWISE).close();
 
-    shape.getStyleClass().addAll("silhouette", "silhoutte-lauburu");
-
-    setShape(shape);
+    setPath(p, "silhouette", "silhoutte-lauburu");
   }
 }
@@ -15,7 +15,6 @@ package de.trho.rcorefx.gui.shapes;
 
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.scene.shape.Shape;
 import java.util.logging.Logger;
 
 /**
@@ -325,7 +324,7 @@ public class MultiRoundRectangle extends AbstractSilhouette {
       tlw = trw = 0;
     }
 
-    PathBuilder p = new PathBuilder();
+    PathBuilder p = pathBuilder();
 
     if (tlw > 0 && tlh > 0) {
       p.moveTo(x, y + tlh);
@@ -355,9 +354,6 @@ public class MultiRoundRectangle extends AbstractSilhouette {
       p.lineTo(x, y + h);
     }
 
-    Shape shape = p.build();
-    shape.getStyleClass().addAll("silhouette", "silhoutte-multiround-rectangle");
-
-    setShape(shape);
+    setPath(p, "silhouette", "silhoutte-multiround-rectangle");
   }
 }
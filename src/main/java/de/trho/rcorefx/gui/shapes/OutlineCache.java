@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 trh0 - https://trho.de - https://github.com/trh0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package de.trho.rcorefx.gui.shapes;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.QuadCurveTo;
+import javafx.scene.shape.Shape;
+
+/**
+ * Bounded cache of outlines computed by {@link Shape} boolean operations. Outlines are kept
+ * relative to the origin, so silhouettes differing in their position only share one.
+ *
+ * @author trh0 - TKoll
+ *
+ */
+final class OutlineCache {
+
+  private static final int                        MAX_OUTLINES = 256;
+
+  private static final byte                       MOVE         = 0;
+  private static final byte                       LINE         = 1;
+  private static final byte                       QUAD         = 2;
+  private static final byte                       CUBIC        = 3;
+  private static final byte                       CLOSE        = 4;
+
+  private static final Map<List<Object>, Outline> OUTLINES     =
+      new LinkedHashMap<List<Object>, Outline>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Outline> eldest) {
+          return size() > MAX_OUTLINES;
+        }
+      };
+
+  private OutlineCache() {}
+
+  /**
+   * Returns a copy of the cached outline moved to a position, computing the outline on a miss.
+   *
+   * @param key The parameters defining the outline, apart from its position.
+   * @param x Horizontal offset of the outline.
+   * @param y Vertical offset of the outline.
+   * @param outline Computes the outline at the origin, by a boolean operation of {@link Shape}.
+   * @return A new path.
+   */
+  static Path outline(List<Object> key, double x, double y, Supplier<Shape> outline) {
+    Outline cached;
+    synchronized (OUTLINES) {
+      cached = OUTLINES.get(key);
+    }
+    if (cached == null) {
+      cached = Outline.of((Path) outline.get());
+      synchronized (OUTLINES) {
+        OUTLINES.put(key, cached);
+      }
+    }
+    return cached.toPath(x, y);
+  }
+
+  /**
+   * Path elements as operations and coordinates, as produced by the boolean operations.
+   */
+  private static final class Outline {
+    private final byte[]   ops;
+    private final double[] coords;
+    private final FillRule fillRule;
+
+    private Outline(byte[] ops, double[] coords, FillRule fillRule) {
+      this.ops = ops;
+      this.coords = coords;
+      this.fillRule = fillRule;
+    }
+
+    private static Outline of(Path path) {
+      final List<PathElement> elements = path.getElements();
+      final byte[] ops = new byte[elements.size()];
+      double[] coords = new double[elements.size() * 2];
+      int n = 0;
+      for (int i = 0; i < ops.length; i++) {
+        final PathElement e = elements.get(i);
+        if (!e.isAbsolute()) {
+          throw new IllegalArgumentException("relative element " + e);
+        }
+        if (coords.length < n + 6) {
+          coords = Arrays.copyOf(coords, coords.length * 2 + 6);
+        }
+        if (e instanceof MoveTo) {
+          ops[i] = MOVE;
+          coords[n++] = ((MoveTo) e).getX();
+          coords[n++] = ((MoveTo) e).getY();
+        } else if (e instanceof LineTo) {
+          ops[i] = LINE;
+          coords[n++] = ((LineTo) e).getX();
+          coords[n++] = ((LineTo) e).getY();
+        } else if (e instanceof QuadCurveTo) {
+          final QuadCurveTo q = (QuadCurveTo) e;
+          ops[i] = QUAD;
+          coords[n++] = q.getControlX();
+          coords[n++] = q.getControlY();
+          coords[n++] = q.getX();
+          coords[n++] = q.getY();
+        } else if (e instanceof CubicCurveTo) {
+          final CubicCurveTo c = (CubicCurveTo) e;
+          ops[i] = CUBIC;
+          coords[n++] = c.getControlX1();
+          coords[n++] = c.getControlY1();
+          coords[n++] = c.getControlX2();
+          coords[n++] = c.getControlY2();
+          coords[n++] = c.getX();
+          coords[n++] = c.getY();
+        } else if (e instanceof ClosePath) {
+          ops[i] = CLOSE;
+        } else {
+          throw new IllegalArgumentException("unsupported element " + e);
+        }
+      }
+      return new Outline(ops, Arrays.copyOf(coords, n), path.getFillRule());
+    }
+
+    private Path toPath(double x, double y) {
+      final PathElement[] elements = new PathElement[ops.length];
+      int n = 0;
+      for (int i = 0; i < ops.length; i++) {
+        switch (ops[i]) {
+          case MOVE:
+            elements[i] = new MoveTo(coords[n] + x, coords[n + 1] + y);
+            n += 2;
+            break;
+          case LINE:
+            elements[i] = new LineTo(coords[n] + x, coords[n + 1] + y);
+            n += 2;
+            break;
+          case QUAD:
+            elements[i] = new QuadCurveTo(coords[n] + x, coords[n + 1] + y, coords[n + 2] + x,
+                coords[n + 3] + y);
+            n += 4;
+            break;
+          case CUBIC:
+            elements[i] = new CubicCurveTo(coords[n] + x, coords[n + 1] + y, coords[n + 2] + x,
+                coords[n + 3] + y, coords[n + 4] + x, coords[n + 5] + y);
+            n += 6;
+            break;
+          default:
+            elements[i] = new ClosePath();
+        }
+      }
+      final Path path = new Path(elements);
+      path.setFillRule(fillRule);
+      return path;
+    }
+  }
+
+}
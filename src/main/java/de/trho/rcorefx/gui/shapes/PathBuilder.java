@@ -13,23 +13,42 @@
  */
 package de.trho.rcorefx.gui.shapes;
 
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.shape.ArcTo;
 import javafx.scene.shape.ClosePath;
 import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
 import javafx.scene.shape.Path;
 import javafx.scene.shape.PathElement;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
+ * Records path elements as operations and coordinates. The recorded path can be built as a
+ * {@link Path}, written into an existing one, formatted as SVG path data or drawn on a
+ * {@link GraphicsContext}. Every path ends with a closing element. The buffers are reused after
+ * {@link #reset()}.
+ *
  * @author Andres Almiray
  */
 public class PathBuilder {
-  private List<PathElement> elements = new ArrayList<>();
+  private static final byte MOVE   = 0;
+  private static final byte LINE   = 1;
+  private static final byte ARC    = 2;
+  private static final byte CLOSE  = 3;
+  private static final byte KIND   = 3;
+  private static final byte SWEEP  = 4;
+  private static final byte LARGE  = 8;
+
+  private byte[]            ops    = new byte[16];
+  private double[]          coords = new double[64];
+  private int               size   = 0;
+  private int               length = 0;
 
   public PathBuilder moveTo(double x, double y) {
-    elements.add(new MoveTo(x, y));
+    add(MOVE);
+    coords[length++] = x;
+    coords[length++] = y;
     return this;
   }
 
@@ -42,25 +61,257 @@ public class PathBuilder {
   }
 
   public PathBuilder arcTo(double x, double y, double rx, double ry, boolean sweep, boolean large) {
-    elements.add(new ArcTo(rx, ry, 0, x, y, large, sweep));
+    add((byte) (ARC | (sweep ? SWEEP : 0) | (large ? LARGE : 0)));
+    coords[length++] = x;
+    coords[length++] = y;
+    coords[length++] = rx;
+    coords[length++] = ry;
     return this;
   }
 
   public PathBuilder lineTo(double x, double y) {
-    elements.add(new LineTo(x, y));
+    add(LINE);
+    coords[length++] = x;
+    coords[length++] = y;
     return this;
   }
 
   public PathBuilder close() {
-    elements.add(new ClosePath());
+    add(CLOSE);
+    return this;
+  }
+
+  private void add(byte op) {
+    if (size == ops.length) {
+      ops = Arrays.copyOf(ops, size * 2);
+    }
+    if (length + 4 > coords.length) {
+      coords = Arrays.copyOf(coords, coords.length * 2);
+    }
+    ops[size++] = op;
+  }
+
+  /**
+   * Discards the recorded elements, keeping the buffers.
+   */
+  public PathBuilder reset() {
+    size = 0;
+    length = 0;
     return this;
   }
 
   public Path build() {
     Path path = new Path();
-    path.getElements().addAll(elements);
-    path.getElements().add(new ClosePath());
-    elements.clear();
+    path.getElements().setAll(elements());
+    reset();
     return path;
   }
+
+  /**
+   * Writes the recorded elements into a path, in place if it consists of the same kinds of elements
+   * in the same order, otherwise by replacing its elements.
+   *
+   * @param path The path to write to.
+   * @return The path.
+   */
+  public Path buildInto(Path path) {
+    if (!updatePath(path)) {
+      path.getElements().setAll(elements());
+      reset();
+    }
+    return path;
+  }
+
+  /**
+   * Rewrites the coordinates of a path built by {@link #build()} in place, provided it consists of
+   * the same kinds of elements in the same order.
+   *
+   * @param path The path to update.
+   * @return Whether the path has been updated, the elements are kept for {@link #build()} if not.
+   */
+  public boolean updatePath(Path path) {
+    final List<PathElement> current = path.getElements();
+    if (current.size() != size + 1 || !(current.get(size) instanceof ClosePath)) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!matches(ops[i], current.get(i))) {
+        return false;
+      }
+    }
+    for (int i = 0, c = 0; i < size; i++) {
+      final PathElement target = current.get(i);
+      switch (ops[i] & KIND) {
+        case MOVE:
+          ((MoveTo) target).setX(coords[c++]);
+          ((MoveTo) target).setY(coords[c++]);
+          break;
+        case LINE:
+          ((LineTo) target).setX(coords[c++]);
+          ((LineTo) target).setY(coords[c++]);
+          break;
+        case ARC:
+          final ArcTo to = (ArcTo) target;
+          to.setX(coords[c++]);
+          to.setY(coords[c++]);
+          to.setRadiusX(coords[c++]);
+          to.setRadiusY(coords[c++]);
+          to.setXAxisRotation(0);
+          to.setSweepFlag((ops[i] & SWEEP) != 0);
+          to.setLargeArcFlag((ops[i] & LARGE) != 0);
+          break;
+        default:
+      }
+    }
+    reset();
+    return true;
+  }
+
+  private static boolean matches(byte op, PathElement element) {
+    switch (op & KIND) {
+      case MOVE:
+        return element instanceof MoveTo;
+      case LINE:
+        return element instanceof LineTo;
+      case ARC:
+        return element instanceof ArcTo;
+      default:
+        return element instanceof ClosePath;
+    }
+  }
+
+  private PathElement[] elements() {
+    final PathElement[] elements = new PathElement[size + 1];
+    for (int i = 0, c = 0; i < size; i++) {
+      switch (ops[i] & KIND) {
+        case MOVE:
+          elements[i] = new MoveTo(coords[c++], coords[c++]);
+          break;
+        case LINE:
+          elements[i] = new LineTo(coords[c++], coords[c++]);
+          break;
+        case ARC:
+          final double x = coords[c++];
+          final double y = coords[c++];
+          elements[i] = new ArcTo(coords[c++], coords[c++], 0, x, y, (ops[i] & LARGE) != 0,
+              (ops[i] & SWEEP) != 0);
+          break;
+        default:
+          elements[i] = new ClosePath();
+      }
+    }
+    elements[size] = new ClosePath();
+    return elements;
+  }
+
+  /**
+   * Formats the recorded elements as SVG path data, e.g. for an SVGPath. The elements are kept.
+   *
+   * @return The path data.
+   */
+  public String toSvg() {
+    final StringBuilder svg = new StringBuilder(size * 24);
+    for (int i = 0, c = 0; i < size; i++) {
+      switch (ops[i] & KIND) {
+        case MOVE:
+          svg.append("M ").append(coords[c++]).append(' ').append(coords[c++]).append(' ');
+          break;
+        case LINE:
+          svg.append("L ").append(coords[c++]).append(' ').append(coords[c++]).append(' ');
+          break;
+        case ARC:
+          svg.append("A ").append(coords[c + 2]).append(' ').append(coords[c + 3]).append(" 0 ")
+              .append((ops[i] & LARGE) != 0 ? 1 : 0).append(' ')
+              .append((ops[i] & SWEEP) != 0 ? 1 : 0).append(' ').append(coords[c]).append(' ')
+              .append(coords[c + 1]).append(' ');
+          c += 4;
+          break;
+        default:
+          svg.append("Z ");
+      }
+    }
+    return svg.append('Z').toString();
+  }
+
+  /**
+   * Replaces the current path of a {@link GraphicsContext} with the recorded elements. Filling or
+   * stroking it is up to the caller. The elements are kept.
+   *
+   * @param gc The graphics context, e.g. of a Canvas.
+   */
+  public void draw(GraphicsContext gc) {
+    gc.beginPath();
+    double x = 0;
+    double y = 0;
+    double startX = 0;
+    double startY = 0;
+    for (int i = 0, c = 0; i < size; i++) {
+      switch (ops[i] & KIND) {
+        case MOVE:
+          x = startX = coords[c++];
+          y = startY = coords[c++];
+          gc.moveTo(x, y);
+          break;
+        case LINE:
+          x = coords[c++];
+          y = coords[c++];
+          gc.lineTo(x, y);
+          break;
+        case ARC:
+          arc(gc, x, y, coords[c], coords[c + 1], coords[c + 2], coords[c + 3],
+              (ops[i] & SWEEP) != 0, (ops[i] & LARGE) != 0);
+          x = coords[c];
+          y = coords[c + 1];
+          c += 4;
+          break;
+        default:
+          // the next element starts where the closed subpath started
+          x = startX;
+          y = startY;
+          gc.closePath();
+      }
+    }
+    gc.closePath();
+  }
+
+  /**
+   * Draws an SVG style arc from (x1, y1) to (x2, y2) by its center, as described in the
+   * implementation notes of the SVG specification.
+   */
+  private static void arc(GraphicsContext gc, double x1, double y1, double x2, double y2,
+      double rx, double ry, boolean sweep, boolean large) {
+    rx = Math.abs(rx);
+    ry = Math.abs(ry);
+    if (x1 == x2 && y1 == y2) {
+      return;
+    }
+    if (rx == 0 || ry == 0) {
+      gc.lineTo(x2, y2);
+      return;
+    }
+    final double dx = (x1 - x2) / 2;
+    final double dy = (y1 - y2) / 2;
+    // radii too small to reach the end point are scaled up
+    final double scale = (dx * dx) / (rx * rx) + (dy * dy) / (ry * ry);
+    if (scale > 1) {
+      rx *= Math.sqrt(scale);
+      ry *= Math.sqrt(scale);
+    }
+    final double num = rx * rx * ry * ry - rx * rx * dy * dy - ry * ry * dx * dx;
+    final double den = rx * rx * dy * dy + ry * ry * dx * dx;
+    double coef = Math.sqrt(Math.max(0, num / den));
+    coef = large == sweep ? -coef : coef;
+    final double cx = coef * rx * dy / ry;
+    final double cy = -coef * ry * dx / rx;
+    final double start = Math.atan2((dy - cy) / ry, (dx - cx) / rx);
+    double extent = Math.atan2((-dy - cy) / ry, (-dx - cx) / rx) - start;
+    if (sweep && extent < 0) {
+      extent += 2 * Math.PI;
+    } else if (!sweep && extent > 0) {
+      extent -= 2 * Math.PI;
+    }
+    // the canvas measures angles counterclockwise on screen, the y axis points down
+    gc.arc(cx + (x1 + x2) / 2, cy + (y1 + y2) / 2, rx, ry, -Math.toDegrees(start),
+        -Math.toDegrees(extent));
+  }
 }
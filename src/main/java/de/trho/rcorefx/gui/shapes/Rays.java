@@ -19,7 +19,6 @@ import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.scene.shape.Shape;
 import java.util.logging.Logger;
 
 /**
@@ -147,12 +146,16 @@ public class Rays extends AbstractCenteredSilhouette {
 
     double sides = bc * 2;
     double t = 360 / sides;
-    double a = 0;
     double e = (validateExtent(getExtent()) * t * 2) - t;
+    UnitCircle u = UnitCircle.of(0, t, bc * 2);
     double[][] points = new double[bc * 2][];
-    double[] angles = new double[bc * 2];
     for (int i = 0; i < sides; i++) {
-      double r = i % 2 == 0 ? a : a + e;
+      if (i % 2 == 0) {
+        points[i] = new double[] {u.x(i, cx, rad), u.y(i, cy, rad)};
+        continue;
+      }
+      // the far edge of a beam depends on the extent
+      double r = u.angle(i) + e;
       r = r < 0 ? 360 + r : r;
       double ra = Math.toRadians(r);
       double x = Math.abs(rad * Math.cos(ra));
@@ -171,12 +174,9 @@ public class Rays extends AbstractCenteredSilhouette {
         y = cy + y;
       }
       points[i] = new double[] {x, y};
-      angles[i] = r;
-      a += t;
-      a = a > 360 ? a - 360 : a;
     }
 
-    PathBuilder p = new PathBuilder();
+    PathBuilder p = pathBuilder();
     p.moveTo(cx, cy);
     for (int i = 0; i < bc; i++) {
       p.lineTo(points[(2 * i)][0], points[(2 * i)][1]);
@@ -188,11 +188,7 @@ public class Rays extends AbstractCenteredSilhouette {
       p.close();
     }
 
-    Shape shape = p.build();
-
-    shape.getStyleClass().addAll("silhouette", "silhoutte-rays");
-
-    setShape(shape);
+    setPath(p, "silhouette", "silhoutte-rays");
   }
 
   private int validateBeamCount(int beamCount) {
@@ -17,7 +17,6 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.scene.shape.Path;
 import java.util.logging.Logger;
 
 /**
@@ -91,45 +90,34 @@ public class RegularPolygon extends AbstractCenteredSilhouette {
 
   @Override
   protected void calculateShape() {
-    PathBuilder p = new PathBuilder();
+    PathBuilder p = pathBuilder();
 
     double cx = getCenterX();
     double cy = getCenterY();
     double r = getRadius();
     int s = validateSides(getSides());
 
-    double t = 360 / s;
-    double a = 0;
-    for (int i = 0; i < s; i++) {
-      double ra = Math.toRadians(a);
-      double x = Math.abs(r * Math.cos(ra));
-      double y = Math.abs(r * Math.sin(ra));
-      if (a <= 90) {
-        x = cx + x;
-        y = cy - y;
-      } else if (a <= 180) {
-        x = cx - x;
-        y = cy - y;
-      } else if (a <= 270) {
-        x = cx - x;
-        y = cy + y;
-      } else if (a <= 360) {
-        x = cx + x;
-        y = cy + y;
-      }
-      if (i == 0) {
-        p.moveTo(x, y);
-      } else {
-        p.lineTo(x, y);
-      }
-      a += t;
-      a = a > 360 ? a - 360 : a;
+    double[] v = vertices(cx, cy, r, s);
+    p.moveTo(v[0], v[1]);
+    for (int i = 2; i < v.length; i += 2) {
+      p.lineTo(v[i], v[i + 1]);
     }
-    Path path = p.build();
 
-    path.getStyleClass().addAll("silhouette", "silhoutte-regular-polygon");
+    setPath(p, "silhouette", "silhoutte-regular-polygon");
+  }
 
-    setShape(path);
+  /**
+   * @return The x and y coordinates of the vertices of a regular polygon, alternating, starting at
+   *         angle 0 and proceeding counterclockwise.
+   */
+  static double[] vertices(double cx, double cy, double r, int s) {
+    double[] v = new double[s * 2];
+    UnitCircle u = UnitCircle.of(0, 360 / s, s);
+    for (int i = 0; i < s; i++) {
+      v[2 * i] = u.x(i, cx, r);
+      v[2 * i + 1] = u.y(i, cy, r);
+    }
+    return v;
   }
 
   private int validateSides(int sides) {
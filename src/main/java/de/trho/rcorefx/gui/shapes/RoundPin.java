@@ -15,7 +15,6 @@ package de.trho.rcorefx.gui.shapes;
 
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.scene.shape.Path;
 
 /**
  * = RoundPin
@@ -86,17 +85,15 @@ public class RoundPin extends AbstractCenteredSilhouette {
 
   @Override
   protected void calculateShape() {
-    PathBuilder p = new PathBuilder();
+    PathBuilder p = pathBuilder();
 
     double cx = getCenterX();
     double cy = getCenterY();
     double r = getRadius();
     double h = getHeight();
 
-    Path path = p.moveTo(cx - r, cy).arcTo(cx + r, cy, r, r).lineTo(cx, cy + h).build();
+    p.moveTo(cx - r, cy).arcTo(cx + r, cy, r, r).lineTo(cx, cy + h);
 
-    path.getStyleClass().addAll("silhouette", "silhoutte-roundpin");
-
-    setShape(path);
+    setPath(p, "silhouette", "silhoutte-roundpin");
   }
 }
@@ -17,7 +17,6 @@ import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.scene.shape.Shape;
 import java.util.logging.Logger;
 
 /**
@@ -137,44 +136,14 @@ public class Star extends AbstractCenteredSilhouette {
     }
 
     double t = 360 / s;
-    double a = 90;
-    double b = 90 + (t / 2);
-    b = b > 360 ? b - 360 : b;
-    PathBuilder p = new PathBuilder();
+    UnitCircle outer = UnitCircle.of(90, t, s);
+    UnitCircle inner = UnitCircle.of(90 + (t / 2), t, s);
+    PathBuilder p = pathBuilder();
     for (int i = 0; i < s; i++) {
-      double ra = Math.toRadians(a);
-      double ox = Math.abs(or * Math.cos(ra));
-      double oy = Math.abs(or * Math.sin(ra));
-      if (a <= 90) {
-        ox = cx + ox;
-        oy = cy - oy;
-      } else if (a <= 180) {
-        ox = cx - ox;
-        oy = cy - oy;
-      } else if (a <= 270) {
-        ox = cx - ox;
-        oy = cy + oy;
-      } else if (a <= 360) {
-        ox = cx + ox;
-        oy = cy + oy;
-      }
-
-      double rb = Math.toRadians(b);
-      double ix = Math.abs(ir * Math.cos(rb));
-      double iy = Math.abs(ir * Math.sin(rb));
-      if (b <= 90) {
-        ix = cx + ix;
-        iy = cy - iy;
-      } else if (b <= 180) {
-        ix = cx - ix;
-        iy = cy - iy;
-      } else if (b <= 270) {
-        ix = cx - ix;
-        iy = cy + iy;
-      } else if (b <= 360) {
-        ix = cx + ix;
-        iy = cy + iy;
-      }
+      double ox = outer.x(i, cx, or);
+      double oy = outer.y(i, cy, or);
+      double ix = inner.x(i, cx, ir);
+      double iy = inner.y(i, cy, ir);
 
       if (i == 0) {
         p.moveTo(ox, oy);
@@ -183,15 +152,8 @@ public class Star extends AbstractCenteredSilhouette {
         p.lineTo(ox, oy);
         p.lineTo(ix, iy);
       }
-      a += t;
-      a = a > 360 ? a - 360 : a;
-      b += t;
-      b = b > 360 ? b - 360 : b;
     }
 
-    Shape shape = p.build();
-    shape.getStyleClass().addAll("silhouette", "silhoutte-star");
-
-    setShape(shape);
+    setPath(p, "silhouette", "silhoutte-star");
   }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 trh0 - https://trho.de - https://github.com/trh0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package de.trho.rcorefx.gui.shapes;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table of points on the unit circle in screen coordinates, at a sequence of angles in
+ * degrees. Each angle is the previous one plus a step, wrapped to 360 at most.<br>
+ * Scaled points are identical to the ones the silhouettes computed by
+ * <code>cx +- Math.abs(r * Math.cos(a))</code> with the sign chosen by the angle's quadrant.
+ *
+ * @author trh0 - TKoll
+ *
+ */
+final class UnitCircle {
+
+  private static final int                           MAX_TABLES = 64;
+
+  private static final Map<List<Double>, UnitCircle> TABLES     =
+      new LinkedHashMap<List<Double>, UnitCircle>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Double>, UnitCircle> eldest) {
+          return size() > MAX_TABLES;
+        }
+      };
+
+  private final double[]                             angles;
+  private final double[]                             x;
+  private final double[]                             y;
+
+  private UnitCircle(double start, double step, int count) {
+    angles = new double[count];
+    x = new double[count];
+    y = new double[count];
+    double a = start > 360 ? start - 360 : start;
+    for (int i = 0; i < count; i++) {
+      double ra = Math.toRadians(a);
+      double ux = Math.abs(Math.cos(ra));
+      double uy = Math.abs(Math.sin(ra));
+      // the y axis points down
+      if (a <= 90) {
+        uy = -uy;
+      } else if (a <= 180) {
+        ux = -ux;
+        uy = -uy;
+      } else if (a <= 270) {
+        ux = -ux;
+      }
+      angles[i] = a;
+      x[i] = ux;
+      y[i] = uy;
+      a += step;
+      a = a > 360 ? a - 360 : a;
+    }
+  }
+
+  /**
+   *
+   * @param start The first angle.
+   * @param step The angle between two points.
+   * @param count The number of points.
+   * @return The shared table.
+   */
+  static UnitCircle of(double start, double step, int count) {
+    final List<Double> key = Arrays.asList(start, step, (double) count);
+    synchronized (TABLES) {
+      return TABLES.computeIfAbsent(key, k -> new UnitCircle(start, step, count));
+    }
+  }
+
+  int size() {
+    return angles.length;
+  }
+
+  double angle(int i) {
+    return angles[i];
+  }
+
+  /**
+   * @return The x coordinate of point i on a circle around cx with radius r.
+   */
+  double x(int i, double cx, double r) {
+    return cx + Math.abs(r) * x[i];
+  }
+
+  /**
+   * @return The y coordinate of point i on a circle around cy with radius r.
+   */
+  double y(int i, double cy, double r) {
+    return cy + Math.abs(r) * y[i];
+  }
+
+}
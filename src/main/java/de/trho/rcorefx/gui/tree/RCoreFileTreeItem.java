@@ -13,9 +13,24 @@
  */
 package de.trho.rcorefx.gui.tree;
 
+import de.trho.rcorefx.util.RCoreController;
 import de.trho.rcorefx.util.RCoreImages;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.control.TreeItem;
 import javafx.scene.image.ImageView;
@@ -31,7 +46,19 @@ public class RCoreFileTreeItem extends TreeItem<String> {
   // this stores the full path to the file or directory
   private String             fullPath;
   private File               file;
-  public static final Number size = 8;
+  public static final Number size       = 8;
+  /**
+   * Maximum number of children handed to the FX thread at once in lazy mode.
+   */
+  public static final int    BATCH_SIZE = 512;
+  /**
+   * Maximum time in milliseconds to collect children before handing them to the FX thread.
+   */
+  public static final long   BATCH_TIME = 50;
+  /**
+   * Value of the placeholder node shown while a directory is being listed.
+   */
+  public static final String LOADING    = "...";
 
   public String getFullPath() {
     return this.fullPath;
@@ -49,20 +76,77 @@ public class RCoreFileTreeItem extends TreeItem<String> {
     return this.isDirectory;
   }
 
+  private final boolean                           lazy;
+  private volatile boolean                        loading = false;
+  private volatile boolean                        loaded  = false;
+  private volatile boolean                        live    = false;
+  private volatile boolean                        watched = false;
+  private volatile Map<String, RCoreFileTreeItem> index;
+
+  /**
+   * 
+   * @return <code>true</code> if the children of this item are listed in the background on first
+   *         expansion.
+   */
+  public boolean isLazy() {
+    return this.lazy;
+  }
+
+  /**
+   * 
+   * @return <code>true</code> if this item or one of its ancestors is in live mode.
+   */
+  public boolean isLive() {
+    for (TreeItem<String> it = this; it != null; it = it.getParent()) {
+      if (it instanceof RCoreFileTreeItem && ((RCoreFileTreeItem) it).live) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * In live mode expanded directories are watched by a shared {@link java.nio.file.WatchService}
+   * and created or deleted entries are inserted into or removed from the children incrementally.
+   * The mode is inherited by all descendants.
+   * 
+   * @param live Whether to enable live mode.
+   */
+  public void setLive(boolean live) {
+    this.live = live;
+    if (live && (this.isExpanded() || this.loaded)) {
+      watch();
+    }
+  }
+
   public RCoreFileTreeItem(File aFile, boolean pragmaOnce) {
-    super(aFile.toPath().toString());
-    this.file = aFile;
-    init(file, pragmaOnce);
-    addHandlers();
+    this(aFile, pragmaOnce, false);
   }
 
   public RCoreFileTreeItem(File file) {
+    this(file, true, false);
+  }
+
+  /**
+   * 
+   * @param file The file or directory represented by this item.
+   * @param pragmaOnce NOT recursively, if TRUE. Ignored in lazy mode.
+   * @param lazy If TRUE, directories are listed on the {@link RCoreController}'s executor when
+   *        expanded for the first time and their children are streamed into the tree in batches.
+   */
+  public RCoreFileTreeItem(File file, boolean pragmaOnce, boolean lazy) {
     super(file.toPath().toString());
     this.file = file;
-    init(file, true);
+    this.lazy = lazy;
+    init(file, pragmaOnce || lazy);
     addHandlers();
   }
 
+  @Override
+  public boolean isLeaf() {
+    return this.lazy ? !this.isDirectory : super.isLeaf();
+  }
+
   /**
    * Init 1 - Building the TreeItem and searching for children.
    * 
@@ -110,12 +194,19 @@ public class RCoreFileTreeItem extends TreeItem<String> {
    *
    */
   private void addHandlers() {
+    if (this.lazy) {
+      addLazyHandlers();
+      return;
+    }
     this.addEventHandler(TreeItem.branchExpandedEvent(), e -> {
       Platform.runLater(() -> {
         RCoreFileTreeItem source = RCoreFileTreeItem.class.cast(e.getTreeItem());
         if (source.isDirectory() && source.isExpanded()) {
           ImageView iv = (ImageView) source.getGraphic();
           iv.setImage(RCoreImages.FOLDER_EXPANDED.getImage(size, size));
+          if (source.isLive()) {
+            source.watch();
+          }
         }
         ObservableList<TreeItem<String>> children = source.getChildren();
         synchronized (children) {
@@ -158,4 +249,171 @@ public class RCoreFileTreeItem extends TreeItem<String> {
     });
   }
 
+  /**
+   * Init 2 - Adding EventHandlers to a lazy TreeItem. Expand events bubble up to all ancestors, so
+   * only events targeting this item are handled.
+   * 
+   */
+  private void addLazyHandlers() {
+    this.addEventHandler(TreeItem.<String>branchExpandedEvent(), e -> {
+      if (e.getTreeItem() == this && this.isDirectory) {
+        ((ImageView) getGraphic()).setImage(RCoreImages.FOLDER_EXPANDED.getImage(size, size));
+        loadChildren();
+      }
+    });
+    this.addEventHandler(TreeItem.<String>branchCollapsedEvent(), e -> {
+      if (e.getTreeItem() == this && this.isDirectory) {
+        ((ImageView) getGraphic()).setImage(RCoreImages.FOLDER_COLLAPSED.getImage(size, size));
+      }
+    });
+  }
+
+  /**
+   * Lists the directory on a background thread using a {@link DirectoryStream}. A placeholder node
+   * is shown until the listing is complete, children are added in front of it in batches of at
+   * most {@link #BATCH_SIZE} entries or every {@link #BATCH_TIME} milliseconds.
+   */
+  private void loadChildren() {
+    if (this.loaded || this.loading || !this.file.canRead()) {
+      return;
+    }
+    this.loading = true;
+    final TreeItem<String> placeholder = new TreeItem<>(LOADING);
+    getChildren().setAll(Collections.singletonList(placeholder));
+    RCoreController.instance().runTask(() -> {
+      List<TreeItem<String>> batch = new ArrayList<>();
+      long last = System.currentTimeMillis();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.file.toPath())) {
+        for (Path p : stream) {
+          batch.add(new RCoreFileTreeItem(p.toFile(), true, true));
+          final long now = System.currentTimeMillis();
+          if (batch.size() >= BATCH_SIZE || now - last >= BATCH_TIME) {
+            publish(batch, placeholder, false);
+            batch = new ArrayList<>();
+            last = now;
+          }
+        }
+      } catch (IOException | DirectoryIteratorException ex) {
+        ex.printStackTrace();
+      } finally {
+        publish(batch, placeholder, true);
+      }
+    });
+  }
+
+  private void publish(final List<TreeItem<String>> batch, final TreeItem<String> placeholder,
+      final boolean done) {
+    Platform.runLater(() -> {
+      final ObservableList<TreeItem<String>> children = getChildren();
+      final int idx = children.indexOf(placeholder);
+      if (idx < 0) {
+        children.addAll(batch);
+      } else {
+        children.addAll(idx, batch);
+      }
+      if (done) {
+        children.remove(placeholder);
+        this.loaded = true;
+        this.loading = false;
+        if (isLive()) {
+          watch();
+        }
+      }
+    });
+  }
+
+  /**
+   * Registers this directory with the shared watcher. The children are indexed by file name from
+   * now on, so changes can be applied without scanning the children.
+   */
+  private void watch() {
+    if (this.watched || !this.isDirectory) {
+      return;
+    }
+    this.watched = true;
+    final Map<String, RCoreFileTreeItem> idx = new ConcurrentHashMap<>();
+    getChildren().forEach(c -> index(idx, c, true));
+    getChildren().addListener((ListChangeListener<TreeItem<String>>) c -> {
+      while (c.next()) {
+        c.getRemoved().forEach(it -> index(idx, it, false));
+        c.getAddedSubList().forEach(it -> index(idx, it, true));
+      }
+    });
+    this.index = idx;
+    try {
+      RCoreFileWatcher.instance().register(this);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static void index(final Map<String, RCoreFileTreeItem> idx, final TreeItem<String> it,
+      final boolean add) {
+    if (it instanceof RCoreFileTreeItem) {
+      final String name = ((RCoreFileTreeItem) it).getFile().getName();
+      if (add) {
+        idx.put(name, (RCoreFileTreeItem) it);
+      } else {
+        idx.remove(name, it);
+      }
+    }
+  }
+
+  /**
+   * May be called from any thread.
+   */
+  boolean hasChild(final String name) {
+    final Map<String, RCoreFileTreeItem> idx = this.index;
+    return idx != null && idx.containsKey(name);
+  }
+
+  /**
+   * Creates a child the same way the initial listing does. Called from the watcher thread.
+   */
+  RCoreFileTreeItem createChild(final File f) {
+    return this.lazy ? new RCoreFileTreeItem(f, true, true) : new RCoreFileTreeItem(f, false);
+  }
+
+  /**
+   * Applies coalesced file system changes on the FX thread.
+   * 
+   * @param created New children, entries that already exist are ignored.
+   * @param deleted Names of removed entries.
+   * @param retain If not null, all children whose name is not contained are removed as well.
+   */
+  void applyChanges(final List<RCoreFileTreeItem> created, final Collection<String> deleted,
+      final Set<String> retain) {
+    final Map<String, RCoreFileTreeItem> idx = this.index;
+    if (idx == null || (this.lazy && !this.loaded)) {
+      return;
+    }
+    final ObservableList<TreeItem<String>> children = getChildren();
+    final List<TreeItem<String>> removed = new ArrayList<>();
+    for (String name : deleted) {
+      final RCoreFileTreeItem it = idx.get(name);
+      if (it != null) {
+        removed.add(it);
+      }
+    }
+    if (retain != null) {
+      idx.forEach((name, it) -> {
+        if (!retain.contains(name)) {
+          removed.add(it);
+        }
+      });
+    }
+    if (!removed.isEmpty()) {
+      children.removeAll(new HashSet<>(removed));
+    }
+    final List<TreeItem<String>> added = new ArrayList<>(created.size());
+    for (RCoreFileTreeItem it : created) {
+      if (!idx.containsKey(it.getFile().getName())) {
+        added.add(it);
+      }
+    }
+    if (!added.isEmpty()) {
+      children.addAll(added);
+    }
+  }
+
 }
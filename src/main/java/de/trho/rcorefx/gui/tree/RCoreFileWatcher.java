@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 trh0 - https://trho.de - https://github.com/trh0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package de.trho.rcorefx.gui.tree;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+
+/**
+ * Single, shared {@link WatchService} thread keeping live {@link RCoreFileTreeItem}s up to date.
+ * <br>
+ * Events are collected until the file system has been quiet for {@link #COALESCE_MILLIS}, or for at
+ * most {@link #MAX_BURST_MILLIS} while events keep arriving, then the resulting state of every touched entry is checked once and handed to the affected items as
+ * incremental insertions and removals.
+ *
+ * @author trh0 - TKoll
+ *
+ */
+final class RCoreFileWatcher implements Runnable {
+
+  /**
+   * Quiet period in milliseconds used to coalesce event bursts.
+   */
+  static final long                                                   COALESCE_MILLIS  = 100;
+
+  /**
+   * Longest time in milliseconds events are collected before they are dispatched, so a file written
+   * continuously does not hold back the updates of all watched directories.
+   */
+  static final long                                                   MAX_BURST_MILLIS = 500;
+
+  private static RCoreFileWatcher                                     Instance;
+
+  private final WatchService                                          service;
+  private final Map<WatchKey, List<WeakReference<RCoreFileTreeItem>>> keys             =
+      new ConcurrentHashMap<>();
+
+  static synchronized RCoreFileWatcher instance() throws IOException {
+    if (Instance == null) {
+      Instance = new RCoreFileWatcher(FileSystems.getDefault().newWatchService());
+      final Thread t = new Thread(Instance, "RCoreFileWatcher");
+      t.setDaemon(true);
+      t.start();
+    }
+    return Instance;
+  }
+
+  private RCoreFileWatcher(final WatchService service) {
+    this.service = service;
+  }
+
+  /**
+   * Starts watching the item's directory. Registering an item twice has no effect.
+   *
+   * @param item A directory item whose children are populated.
+   * @throws IOException If the directory can not be watched.
+   */
+  void register(final RCoreFileTreeItem item) throws IOException {
+    final WatchKey key =
+        item.getFile().toPath().register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+    final List<WeakReference<RCoreFileTreeItem>> refs =
+        keys.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+    for (WeakReference<RCoreFileTreeItem> ref : refs) {
+      if (ref.get() == item) {
+        return;
+      }
+    }
+    refs.add(new WeakReference<>(item));
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        final Map<WatchKey, Set<Path>> burst = new LinkedHashMap<>();
+        WatchKey key = service.take();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_BURST_MILLIS);
+        while (key != null) {
+          collect(key, burst);
+          final long left = deadline - System.nanoTime();
+          if (left <= 0) {
+            break;
+          }
+          key = service.poll(Math.min(left, TimeUnit.MILLISECONDS.toNanos(COALESCE_MILLIS)),
+              TimeUnit.NANOSECONDS);
+        }
+        burst.forEach(this::dispatch);
+      } catch (InterruptedException e) {
+        return;
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Only the entry names are kept, the kind of the last event is irrelevant since the state of
+   * each entry is checked on dispatch. A <code>null</code> name marks an overflow.
+   */
+  private void collect(final WatchKey key, final Map<WatchKey, Set<Path>> burst) {
+    final Set<Path> names = burst.computeIfAbsent(key, k -> new LinkedHashSet<>());
+    for (WatchEvent<?> ev : key.pollEvents()) {
+      names.add(ev.kind() == OVERFLOW ? null : (Path) ev.context());
+    }
+    if (!key.reset()) {
+      keys.remove(key);
+      burst.remove(key);
+    }
+  }
+
+  private void dispatch(final WatchKey key, final Set<Path> names) {
+    final List<WeakReference<RCoreFileTreeItem>> refs = keys.get(key);
+    if (refs == null) {
+      return;
+    }
+    final Path dir = (Path) key.watchable();
+    final Set<String> present = new LinkedHashSet<>();
+    final Set<String> absent = new HashSet<>();
+    final boolean overflow = names.contains(null);
+    if (overflow) {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+        for (Path p : stream) {
+          present.add(p.getFileName().toString());
+        }
+      } catch (IOException | DirectoryIteratorException e) {
+        e.printStackTrace();
+        return;
+      }
+    } else {
+      for (Path name : names) {
+        if (Files.exists(dir.resolve(name), LinkOption.NOFOLLOW_LINKS)) {
+          present.add(name.toString());
+        } else {
+          absent.add(name.toString());
+        }
+      }
+    }
+    final List<WeakReference<RCoreFileTreeItem>> cleared = new ArrayList<>();
+    for (WeakReference<RCoreFileTreeItem> ref : refs) {
+      final RCoreFileTreeItem item = ref.get();
+      if (item == null) {
+        cleared.add(ref);
+        continue;
+      }
+      final List<RCoreFileTreeItem> created = new ArrayList<>();
+      for (String name : present) {
+        if (!item.hasChild(name)) {
+          created.add(item.createChild(dir.resolve(name).toFile()));
+        }
+      }
+      if (overflow || !created.isEmpty() || !absent.isEmpty()) {
+        Platform.runLater(() -> item.applyChanges(created, absent, overflow ? present : null));
+      }
+    }
+    refs.removeAll(cleared);
+    if (refs.isEmpty()) {
+      keys.remove(key);
+      key.cancel();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 trh0 - https://trho.de - https://github.com/trh0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package de.trho.rcorefx.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javafx.scene.image.Image;
+
+/**
+ * Process-wide cache for decoded {@link RCoreImages}.<br>
+ * Images are keyed by their enum constant, requested dimensions and smoothing flag and evicted in
+ * least-recently-used order as soon as the estimated size of all cached images exceeds
+ * {@link #getMaxBytes()}.
+ *
+ * @author trh0 - TKoll
+ *
+ */
+public final class RCoreImageCache {
+
+  /**
+   * Default byte budget for decoded images (32 MiB).
+   */
+  public static final long             DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+  private static final Map<Key, Image> images            = new LinkedHashMap<>(64, .75f, true);
+  private static final AtomicLong      hits              = new AtomicLong();
+  private static final AtomicLong      misses            = new AtomicLong();
+  private static final AtomicLong      evictions         = new AtomicLong();
+  private static long                  maxBytes          = DEFAULT_MAX_BYTES;
+  private static long                  bytes             = 0;
+
+  private RCoreImageCache() {}
+
+  /**
+   * Returns the cached image for the given key or decodes it using the loader.
+   *
+   * @param image The image constant.
+   * @param width Requested width, may be null.
+   * @param height Requested height, may be null.
+   * @param smooth Whether the image is scaled using a better quality filtering algorithm.
+   * @param loader Decodes the image if it is not cached yet.
+   * @return The cached or freshly decoded image.
+   */
+  static Image get(final RCoreImages image, final Number width, final Number height,
+      final boolean smooth, final Supplier<Image> loader) {
+    final Key key = new Key(image, width, height, smooth);
+    synchronized (images) {
+      final Image cached = images.get(key);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return cached;
+      }
+    }
+    misses.incrementAndGet();
+    final Image loaded = loader.get();
+    if (loaded == null || loaded.isError()) {
+      return loaded;
+    }
+    synchronized (images) {
+      final Image present = images.get(key);
+      if (present != null) {
+        return present;
+      }
+      images.put(key, loaded);
+      bytes += sizeOf(loaded);
+      trim();
+    }
+    return loaded;
+  }
+
+  /**
+   * Removes all cached images. The statistics are kept.
+   */
+  public static void clear() {
+    synchronized (images) {
+      images.clear();
+      bytes = 0;
+    }
+  }
+
+  /**
+   *
+   * @param max The maximum estimated number of bytes held by decoded images.
+   */
+  public static void setMaxBytes(final long max) {
+    if (max < 0) {
+      throw new IllegalArgumentException("max=" + max);
+    }
+    synchronized (images) {
+      maxBytes = max;
+      trim();
+    }
+  }
+
+  public static long getMaxBytes() {
+    synchronized (images) {
+      return maxBytes;
+    }
+  }
+
+  /**
+   *
+   * @return The estimated number of bytes currently held by the cache.
+   */
+  public static long getBytes() {
+    synchronized (images) {
+      return bytes;
+    }
+  }
+
+  public static int size() {
+    synchronized (images) {
+      return images.size();
+    }
+  }
+
+  public static long hits() {
+    return hits.get();
+  }
+
+  public static long misses() {
+    return misses.get();
+  }
+
+  public static long evictions() {
+    return evictions.get();
+  }
+
+  private static void trim() {
+    final Iterator<Image> it = images.values().iterator();
+    while (bytes > maxBytes && it.hasNext()) {
+      bytes -= sizeOf(it.next());
+      it.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Decoded images are stored as 32bit ARGB.
+   */
+  private static long sizeOf(final Image image) {
+    return 4L * (long) Math.ceil(image.getWidth()) * (long) Math.ceil(image.getHeight());
+  }
+
+  private static final class Key {
+    private final RCoreImages image;
+    private final double      width;
+    private final double      height;
+    private final boolean     smooth;
+
+    Key(final RCoreImages image, final Number width, final Number height, final boolean smooth) {
+      this.image = image;
+      this.width = width == null ? -1 : width.doubleValue();
+      this.height = height == null ? -1 : height.doubleValue();
+      this.smooth = smooth;
+    }
+
+    @Override
+    public int hashCode() {
+      int h = image.hashCode();
+      h = 31 * h + Double.hashCode(width);
+      h = 31 * h + Double.hashCode(height);
+      return 31 * h + (smooth ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key o = (Key) obj;
+      return image == o.image && width == o.width && height == o.height && smooth == o.smooth;
+    }
+  }
+}
@@ -72,11 +72,28 @@ public enum RCoreImages {
    * @return The {@link javafx.scene.image.Image} loaded from enum's String.
    */
   public Image getImage(Number width, Number height) {
+    return this.getImage(width, height, true);
+  }
+
+  /**
+   * Images are shared through the {@link RCoreImageCache}, so the stream is only decoded once per
+   * distinct size.
+   * 
+   * @param width The width the image will be loaded with.
+   * @param height The height the image will be loaded with.
+   * @param smooth Whether to use a better quality filtering algorithm when scaling.
+   * @return The {@link javafx.scene.image.Image} loaded from enum's String.
+   */
+  public Image getImage(Number width, Number height, boolean smooth) {
+    return RCoreImageCache.get(this, width, height, smooth, () -> load(width, height, smooth));
+  }
+
+  private Image load(Number width, Number height, boolean smooth) {
     Image image = null;
     try (InputStream is =
         RCoreImages.class.getClassLoader().getResourceAsStream("img/" + this.location)) {
       if (width != null && height != null) {
-        image = new Image(is, width.doubleValue(), height.doubleValue(), true, true);
+        image = new Image(is, width.doubleValue(), height.doubleValue(), true, smooth);
       } else {
         image = new Image(is);
       }
@@ -15,29 +15,50 @@ package de.trho.rcorefx.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.DTD;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
 import org.reactfx.EventStreams;
-import org.w3c.dom.bootstrap.DOMImplementationRegistry;
-import org.w3c.dom.ls.DOMImplementationLS;
-import org.w3c.dom.ls.LSSerializer;
-import org.xml.sax.InputSource;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
@@ -128,6 +149,42 @@ public class RCoreUtils {
    */
   public static final Pattern IntNumberPattern  = Pattern.compile("^[0-9]+$");
 
+  /**
+   * Maximum number of compiled patterns kept by {@link #pattern(String)}.
+   */
+  public static final int                   PatternCacheSize = 256;
+
+  private static final Map<String, Pattern> Patterns         =
+      new LinkedHashMap<String, Pattern>(64, .75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Pattern> eldest) {
+          return size() > PatternCacheSize;
+        }
+      };
+
+  /**
+   * Returns the compiled pattern of a regular expression. The least recently used patterns are
+   * dropped once more than {@link #PatternCacheSize} are cached.
+   * 
+   * @param regex A regular expression.
+   * @return The compiled pattern.
+   */
+  public static Pattern pattern(final String regex) {
+    synchronized (Patterns) {
+      final Pattern p = Patterns.get(regex);
+      if (p != null) {
+        return p;
+      }
+    }
+    final Pattern p = Pattern.compile(regex);
+    synchronized (Patterns) {
+      Patterns.put(regex, p);
+    }
+    return p;
+  }
+
   /**
    * Will set the TextField's style class depending on the value and the given regex.
    * 
@@ -138,25 +195,34 @@ public class RCoreUtils {
    */
   public static void addValidator(final String regex, final TextField target,
       final String validClass, final String invalidClass) {
-    final Pattern p = Pattern.compile(regex);
-    EventStreams.valuesOf(target.textProperty()).successionEnds(Duration.ofMillis(250))
-        .subscribe((value) -> {
-          if (value != null && !value.isEmpty()) {
-            if (p.matcher(value).matches()) {
-              System.out.println(value + " maches");
-              target.setStyle("");
-              target.getStyleClass().remove(invalidClass);
-              target.getStyleClass().add(validClass);
-            } else {
-              System.out.println(value + " no match, si ja");
-              target.getStyleClass().remove(validClass);
-              target.getStyleClass().add(invalidClass);
-            }
-          } else {
-            target.getStyleClass().remove(validClass);
-            target.getStyleClass().remove(invalidClass);
-          }
-        });
+    addValidator(regex, target, validClass, invalidClass, false);
+  }
+
+  /**
+   * Will set the TextField's style class depending on the value and the given regex.
+   * 
+   * @param regex Regular expression the input has to match.
+   * @param target The textField to add validation to.
+   * @param validClass CSS class to be used for valid values.
+   * @param invalidClass CSS class to be used for invalid values.
+   * @param async Whether to match on the {@link RCoreController}'s executor. A running match is
+   *        cancelled as soon as the text changes again.
+   */
+  public static void addValidator(final String regex, final TextField target,
+      final String validClass, final String invalidClass, final boolean async) {
+    addValidator(regex, target, async, valid -> {
+      if (valid == null) {
+        target.getStyleClass().remove(validClass);
+        target.getStyleClass().remove(invalidClass);
+      } else if (valid) {
+        target.setStyle("");
+        target.getStyleClass().remove(invalidClass);
+        target.getStyleClass().add(validClass);
+      } else {
+        target.getStyleClass().remove(validClass);
+        target.getStyleClass().add(invalidClass);
+      }
+    });
   }
 
   /**
@@ -166,21 +232,101 @@ public class RCoreUtils {
    * @param target The textField to add validation to.
    */
   public static void addValidator(final String regex, final TextField target) {
-    final Pattern p = Pattern.compile(regex);
+    addValidator(regex, target, false);
+  }
+
+  /**
+   * Will set the textFields text-fill red if invalid, green if valid or black if empty.
+   * 
+   * @param regex Regular expression the input has to match.
+   * @param target The textField to add validation to.
+   * @param async Whether to match on the {@link RCoreController}'s executor. A running match is
+   *        cancelled as soon as the text changes again.
+   */
+  public static void addValidator(final String regex, final TextField target,
+      final boolean async) {
+    addValidator(regex, target, async, valid -> {
+      if (valid == null) {
+        target.setStyle("-fx-text-fill: black;");
+      } else if (valid) {
+        target.setStyle("-fx-text-fill: green;");
+      } else {
+        target.setStyle("-fx-text-fill: red;");
+      }
+    });
+  }
+
+  /**
+   * @param apply Receives null for empty input, otherwise whether the input matches. Called on the
+   *        FX application thread.
+   */
+  private static void addValidator(final String regex, final TextField target, final boolean async,
+      final Consumer<Boolean> apply) {
+    final Pattern p = pattern(regex);
+    final AtomicLong generation = new AtomicLong();
+    final AtomicReference<Future<?>> running = new AtomicReference<>();
     EventStreams.valuesOf(target.textProperty()).successionEnds(Duration.ofMillis(250))
         .subscribe((value) -> {
-          if (value != null && !value.isEmpty()) {
-            if (p.matcher(value).matches()) {
-              target.setStyle("-fx-text-fill: green;");
-            } else {
-              target.setStyle("-fx-text-fill: red;");
-            }
+          final long gen = generation.incrementAndGet();
+          final Future<?> stale = running.getAndSet(null);
+          if (stale != null) {
+            stale.cancel(true);
+          }
+          if (value == null || value.isEmpty()) {
+            apply.accept(null);
+          } else if (!async) {
+            apply.accept(p.matcher(value).matches());
           } else {
-            target.setStyle("-fx-text-fill: black;");
+            running.set(RCoreController.instance().runTask(() -> {
+              try {
+                final boolean valid = p.matcher(new InterruptibleCharSequence(value)).matches();
+                Platform.runLater(() -> {
+                  if (generation.get() == gen) {
+                    apply.accept(valid);
+                  }
+                });
+              } catch (CancellationException e) {
+                // superseded by a newer value
+              }
+            }));
           }
         });
   }
 
+  /**
+   * Lets a running match be cancelled by interrupting its thread.
+   */
+  private static final class InterruptibleCharSequence implements CharSequence {
+    private final CharSequence chars;
+
+    InterruptibleCharSequence(final CharSequence chars) {
+      this.chars = chars;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new CancellationException();
+      }
+      return chars.charAt(index);
+    }
+
+    @Override
+    public int length() {
+      return chars.length();
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      return new InterruptibleCharSequence(chars.subSequence(start, end));
+    }
+
+    @Override
+    public String toString() {
+      return chars.toString();
+    }
+  }
+
   /**
    * 
    * @param pairs Key-Value pairs to be converted to a {@linkplain Map}
@@ -409,34 +555,258 @@ public class RCoreUtils {
     return res;
   }
 
+  /**
+   * Indentation of one level of {@link #FormatXML(Reader, Writer, boolean)}.
+   */
+  private static final String           XmlIndent = "    ";
+
+  private static final XMLInputFactory  XmlIn     = XMLInputFactory.newInstance();
+  private static final XMLOutputFactory XmlOut    = XMLOutputFactory.newInstance();
+
+  static {
+    XmlIn.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    // keep CDATA sections instead of reporting them as plain text
+    final String cdata = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+    if (XmlIn.isPropertySupported(cdata)) {
+      XmlIn.setProperty(cdata, Boolean.TRUE);
+    }
+  }
+
   /**
    * 
    * @param xml
-   * @return
+   * @return The indented xml or null if it could not be parsed.
    */
   public static String FormatXML(String xml) {
     String formatted = null;
     try {
-      final InputSource src = new InputSource(new StringReader(xml));
-      final org.w3c.dom.Node document =
-          DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(src).getDocumentElement();
-      final Boolean keepDeclaration = Boolean.valueOf(xml.startsWith("<?xml"));
+      final StringWriter out = new StringWriter(xml.length() + (xml.length() >> 2));
+      FormatXML(new StringReader(xml), out, xml.startsWith("<?xml"));
+      formatted = out.toString();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return formatted;
+  }
 
-      // May need this:
-      // System.setProperty(DOMImplementationRegistry.PROPERTY,"com.sun.org.apache.xerces.internal.dom.DOMImplementationSourceImpl");
+  /**
+   * Indents xml while streaming it from <code>in</code> to <code>out</code>. Whitespace between
+   * elements is replaced, elements containing text are written as they are. Neither stream is
+   * closed.
+   * 
+   * @param in Source of the xml.
+   * @param out Target of the indented xml.
+   * @param declaration Whether to write an xml declaration.
+   * @throws XMLStreamException If the xml is not well-formed or can not be written.
+   */
+  public static void FormatXML(Reader in, Writer out, boolean declaration)
+      throws XMLStreamException {
+    final XMLEventReader r = XmlIn.createXMLEventReader(in);
+    final XMLStreamWriter w = XmlOut.createXMLStreamWriter(out);
+    try {
+      if (declaration) {
+        w.writeStartDocument("1.0");
+      }
+      FormatXML(r, w, declaration);
+    } finally {
+      r.close();
+      w.close();
+    }
+  }
 
-      final DOMImplementationRegistry registry = DOMImplementationRegistry.newInstance();
-      final DOMImplementationLS impl = (DOMImplementationLS) registry.getDOMImplementation("LS");
-      final LSSerializer writer = impl.createLSSerializer();
+  /**
+   * Indents xml while streaming it from <code>in</code> to <code>out</code>. The encoding of the
+   * input is detected, the output is written in UTF-8 including the xml declaration. Neither stream
+   * is closed.
+   * 
+   * @param in Source of the xml.
+   * @param out Target of the indented xml.
+   * @throws XMLStreamException If the xml is not well-formed or can not be written.
+   */
+  public static void FormatXML(InputStream in, OutputStream out) throws XMLStreamException {
+    final XMLEventReader r = XmlIn.createXMLEventReader(in);
+    final XMLStreamWriter w = XmlOut.createXMLStreamWriter(out, "UTF-8");
+    try {
+      w.writeStartDocument("UTF-8", "1.0");
+      FormatXML(r, w, true);
+    } finally {
+      r.close();
+      w.close();
+    }
+  }
 
-      writer.getDomConfig().setParameter("format-pretty-print", Boolean.TRUE);
-      writer.getDomConfig().setParameter("xml-declaration", keepDeclaration);
+  /**
+   * Formats xml on the {@link RCoreController}'s executor.
+   * 
+   * @param xml
+   * @return The indented xml or null if it could not be parsed.
+   */
+  public static CompletableFuture<String> FormatXMLAsync(final String xml) {
+    return CompletableFuture.supplyAsync(() -> FormatXML(xml),
+        r -> RCoreController.instance().runTask(r));
+  }
 
-      formatted = writer.writeToString(document);
-    } catch (Exception e) {
-      e.printStackTrace();
+  /**
+   * Streams and formats xml on the {@link RCoreController}'s executor, see
+   * {@link #FormatXML(InputStream, OutputStream)}.
+   * 
+   * @param in Source of the xml.
+   * @param out Target of the indented xml.
+   * @return Completes once all xml is written, or exceptionally.
+   */
+  public static CompletableFuture<Void> FormatXMLAsync(final InputStream in,
+      final OutputStream out) {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        FormatXML(in, out);
+      } catch (XMLStreamException e) {
+        throw new CompletionException(e);
+      }
+    }, r -> RCoreController.instance().runTask(r));
+  }
+
+  /**
+   * @param started Whether something has been written before the first node.
+   */
+  private static void FormatXML(final XMLEventReader r, final XMLStreamWriter w, boolean started)
+      throws XMLStreamException {
+    final StringBuilder text = new StringBuilder();
+    // per depth: element contains text, element contains nodes
+    final BitSet mixed = new BitSet();
+    final BitSet nested = new BitSet();
+    int depth = 0;
+    while (r.hasNext()) {
+      final XMLEvent e = r.nextEvent();
+      switch (e.getEventType()) {
+        case XMLEvent.CHARACTERS:
+        case XMLEvent.CDATA:
+        case XMLEvent.SPACE:
+          final Characters chars = e.asCharacters();
+          if (chars.isCData()) {
+            flushXmlText(w, text, mixed, depth);
+            w.writeCData(chars.getData());
+            mixed.set(depth);
+          } else {
+            text.append(chars.getData());
+          }
+          break;
+        case XMLEvent.START_ELEMENT:
+          flushXmlText(w, text, mixed, depth);
+          if (!mixed.get(depth)) {
+            indentXml(w, depth, started);
+          }
+          started = true;
+          nested.set(depth);
+          final StartElement se = e.asStartElement();
+          final boolean empty = r.hasNext() && r.peek().isEndElement();
+          final String prefix = se.getName().getPrefix();
+          final String uri = se.getName().getNamespaceURI();
+          final String local = se.getName().getLocalPart();
+          if (empty) {
+            w.writeEmptyElement(prefix, local, uri);
+          } else {
+            w.writeStartElement(prefix, local, uri);
+          }
+          for (Iterator<?> it = se.getNamespaces(); it.hasNext();) {
+            final Namespace ns = (Namespace) it.next();
+            if (ns.isDefaultNamespaceDeclaration()) {
+              w.writeDefaultNamespace(ns.getNamespaceURI());
+            } else {
+              w.writeNamespace(ns.getPrefix(), ns.getNamespaceURI());
+            }
+          }
+          for (Iterator<?> it = se.getAttributes(); it.hasNext();) {
+            final Attribute a = (Attribute) it.next();
+            if (a.getName().getNamespaceURI().isEmpty()) {
+              w.writeAttribute(a.getName().getLocalPart(), a.getValue());
+            } else {
+              w.writeAttribute(a.getName().getPrefix(), a.getName().getNamespaceURI(),
+                  a.getName().getLocalPart(), a.getValue());
+            }
+          }
+          if (empty) {
+            r.nextEvent();
+          } else {
+            depth++;
+            mixed.clear(depth);
+            nested.clear(depth);
+          }
+          break;
+        case XMLEvent.END_ELEMENT:
+          flushXmlText(w, text, mixed, depth);
+          if (nested.get(depth) && !mixed.get(depth)) {
+            indentXml(w, depth - 1, true);
+          }
+          depth--;
+          w.writeEndElement();
+          break;
+        case XMLEvent.COMMENT:
+          flushXmlText(w, text, mixed, depth);
+          if (!mixed.get(depth)) {
+            indentXml(w, depth, started);
+          }
+          started = true;
+          nested.set(depth);
+          w.writeComment(((Comment) e).getText());
+          break;
+        case XMLEvent.PROCESSING_INSTRUCTION:
+          flushXmlText(w, text, mixed, depth);
+          if (!mixed.get(depth)) {
+            indentXml(w, depth, started);
+          }
+          started = true;
+          nested.set(depth);
+          final ProcessingInstruction pi = (ProcessingInstruction) e;
+          w.writeProcessingInstruction(pi.getTarget(), pi.getData());
+          break;
+        case XMLEvent.DTD:
+          if (!mixed.get(depth)) {
+            indentXml(w, depth, started);
+          }
+          started = true;
+          w.writeDTD(((DTD) e).getDocumentTypeDeclaration());
+          break;
+        case XMLEvent.END_DOCUMENT:
+          w.writeEndDocument();
+          break;
+        default:
+          break;
+      }
+    }
+    w.flush();
+  }
+
+  /**
+   * Writes pending text unless it is whitespace only and the element contains no other text.
+   */
+  private static void flushXmlText(final XMLStreamWriter w, final StringBuilder text,
+      final BitSet mixed, final int depth) throws XMLStreamException {
+    if (text.length() == 0) {
+      return;
+    }
+    if (mixed.get(depth)) {
+      w.writeCharacters(text.toString());
+      text.setLength(0);
+      return;
+    }
+    for (int i = 0; i < text.length(); i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        w.writeCharacters(text.toString());
+        mixed.set(depth);
+        break;
+      }
+    }
+    text.setLength(0);
+  }
+
+  private static void indentXml(final XMLStreamWriter w, final int depth, final boolean newLine)
+      throws XMLStreamException {
+    if (newLine) {
+      w.writeCharacters("\n");
+    }
+    for (int i = 0; i < depth; i++) {
+      w.writeCharacters(XmlIndent);
     }
-    return formatted;
   }
 
   /**